@@ -2,12 +2,14 @@ package com.backmore.secondhand_mall.config;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.io.File;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
@@ -15,6 +17,9 @@ public class WebConfig implements WebMvcConfigurer {
     @Value("${file.upload-dir:uploads/avatars}")
     private String uploadDir;
 
+    @Value("${file.blob-dir:uploads/blobs}")
+    private String blobDir;
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         try {
@@ -38,6 +43,15 @@ public class WebConfig implements WebMvcConfigurer {
             String fileUrl = "file:" + uploadAbsolutePath;
             System.out.println("文件URL: " + fileUrl);
             
+            // 内容寻址的图片文件，文件名即内容哈希，可以长期缓存
+            File blobDirFile = new File(blobDir);
+            if (!blobDirFile.exists()) {
+                blobDirFile.mkdirs();
+            }
+            registry.addResourceHandler("/uploads/blobs/**")
+                    .addResourceLocations("file:" + blobDirFile.getAbsolutePath() + File.separator)
+                    .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic());
+
             registry.addResourceHandler("/uploads/**")
                     .addResourceLocations(fileUrl);
             
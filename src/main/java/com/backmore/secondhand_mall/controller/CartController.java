@@ -1,9 +1,16 @@
 package com.backmore.secondhand_mall.controller;
 
+import com.backmore.secondhand_mall.dto.CartPatchRequest;
 import com.backmore.secondhand_mall.entity.Cart;
 import com.backmore.secondhand_mall.entity.CartItem;
+import com.backmore.secondhand_mall.entity.Order;
+import com.backmore.secondhand_mall.exception.CartVersionConflictException;
+import com.backmore.secondhand_mall.exception.FlashSaleConflictException;
+import com.backmore.secondhand_mall.exception.InsufficientStockException;
 import com.backmore.secondhand_mall.service.CartService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -34,6 +41,32 @@ public class CartController {
         return cartService.addProductToCart(userId, productId, quantity);
     }
 
+    /**
+     * 批量增加/修改/移除购物车商品，一次请求全部生效或全部不生效
+     * 请求体可带version，与当前版本不一致时返回409和当前版本；响应只包含有变化的购物车项和合计
+     */
+    @PatchMapping
+    public ResponseEntity<?> patchCart(@RequestBody CartPatchRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            if (request.getUserId() == null) {
+                response.put("error", "用户ID不能为空");
+                return ResponseEntity.badRequest().body(response);
+            }
+            return ResponseEntity.ok(cartService.patchCart(request.getUserId(), request.getVersion(), request.getOperations()));
+        } catch (CartVersionConflictException e) {
+            response.put("error", e.getMessage());
+            response.put("currentVersion", e.getCurrentVersion());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("error", "修改购物车失败: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     @PutMapping("/item/{cartItemId}")
     public Cart updateCartItemQuantity(
             @PathVariable Long cartItemId,
@@ -60,4 +93,28 @@ public class CartController {
         }
         return response;
     }
-}
\ No newline at end of file
+
+    /**
+     * 购物车结算，一次请求完成定价、扣减库存、创建订单和清空购物车
+     */
+    @PostMapping("/checkout")
+    public ResponseEntity<?> checkout(@RequestBody Map<String, Object> requestBody) {
+        Map<String, String> response = new HashMap<>();
+        try {
+            Long userId = Long.valueOf(requestBody.get("userId").toString());
+            String shippingAddress = (String) requestBody.get("shippingAddress");
+            String paymentMethod = (String) requestBody.get("paymentMethod");
+            Order order = cartService.checkout(userId, shippingAddress, paymentMethod);
+            return ResponseEntity.ok(order);
+        } catch (InsufficientStockException | FlashSaleConflictException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            response.put("error", "结算失败: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+}
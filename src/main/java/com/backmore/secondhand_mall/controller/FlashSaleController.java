@@ -0,0 +1,166 @@
+package com.backmore.secondhand_mall.controller;
+
+import com.backmore.secondhand_mall.entity.User;
+import com.backmore.secondhand_mall.service.FlashSaleService;
+import com.backmore.secondhand_mall.service.ProductService;
+import com.backmore.secondhand_mall.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 秒杀接口：卖家或管理员开启/关闭，买家抢购后凭排队凭证查询结果
+ */
+@RestController
+@RequestMapping("/api/flash-sale")
+public class FlashSaleController {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlashSaleController.class);
+
+    @Autowired
+    private FlashSaleService flashSaleService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private UserService userService;
+
+    /**
+     * 开启商品秒杀
+     */
+    @PostMapping("/products/{productId}/enable")
+    public ResponseEntity<?> enable(@PathVariable Long productId) {
+        try {
+            ResponseEntity<?> denied = checkOwnerOrAdmin(productId);
+            if (denied != null) {
+                return denied;
+            }
+            return ResponseEntity.ok(flashSaleService.enable(productId));
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalStateException e) {
+            return error(HttpStatus.CONFLICT, e.getMessage());
+        } catch (Exception e) {
+            logger.error("开启秒杀失败, 商品ID: {}", productId, e);
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "开启秒杀失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭商品秒杀并返回对账结果
+     */
+    @PostMapping("/products/{productId}/disable")
+    public ResponseEntity<?> disable(@PathVariable Long productId) {
+        try {
+            ResponseEntity<?> denied = checkOwnerOrAdmin(productId);
+            if (denied != null) {
+                return denied;
+            }
+            return ResponseEntity.ok(flashSaleService.disable(productId));
+        } catch (IllegalStateException e) {
+            return error(HttpStatus.CONFLICT, e.getMessage());
+        } catch (Exception e) {
+            logger.error("关闭秒杀失败, 商品ID: {}", productId, e);
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "关闭秒杀失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询秒杀状态
+     */
+    @GetMapping("/products/{productId}")
+    public ResponseEntity<?> status(@PathVariable Long productId) {
+        Map<String, Object> status = flashSaleService.status(productId);
+        if (status == null) {
+            return error(HttpStatus.NOT_FOUND, "商品未开启秒杀");
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    /**
+     * 抢购，成功返回202和排队凭证，失败立即返回
+     */
+    @PostMapping("/products/{productId}/buy")
+    public ResponseEntity<?> buy(@PathVariable Long productId,
+                                 @RequestBody(required = false) Map<String, Object> requestBody) {
+        try {
+            Long userId = getCurrentUserId();
+            int quantity = 1;
+            String shippingAddress = null;
+            String paymentMethod = null;
+            if (requestBody != null) {
+                if (requestBody.get("quantity") != null) {
+                    quantity = Integer.parseInt(requestBody.get("quantity").toString());
+                }
+                shippingAddress = (String) requestBody.get("shippingAddress");
+                paymentMethod = (String) requestBody.get("paymentMethod");
+            }
+
+            String ticketId = flashSaleService.tryBuy(productId, userId, quantity, shippingAddress, paymentMethod);
+            Map<String, Object> response = new HashMap<>();
+            response.put("ticketId", ticketId);
+            response.put("status", "QUEUED");
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            return error(HttpStatus.CONFLICT, e.getMessage());
+        } catch (Exception e) {
+            logger.error("秒杀抢购失败, 商品ID: {}", productId, e);
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "抢购失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询排队凭证结果
+     */
+    @GetMapping("/tickets/{ticketId}")
+    public ResponseEntity<?> ticket(@PathVariable String ticketId) {
+        Map<String, Object> ticket = flashSaleService.getTicket(ticketId);
+        if (ticket == null) {
+            return error(HttpStatus.NOT_FOUND, "凭证不存在或已过期");
+        }
+        return ResponseEntity.ok(ticket);
+    }
+
+    private ResponseEntity<?> checkOwnerOrAdmin(Long productId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean isAdmin = authentication.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        if (!isAdmin && !productService.isProductOwnedByUser(productId, getCurrentUserId())) {
+            return error(HttpStatus.FORBIDDEN, "无权操作此商品");
+        }
+        return null;
+    }
+
+    private ResponseEntity<?> error(HttpStatus status, String message) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", message);
+        return ResponseEntity.status(status).body(response);
+    }
+
+    /**
+     * 获取当前登录用户ID
+     */
+    private Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new RuntimeException("用户未登录");
+        }
+        Optional<User> userOpt = userService.findByUsername(authentication.getName());
+        if (userOpt.isEmpty()) {
+            throw new RuntimeException("用户不存在");
+        }
+        return userOpt.get().getId();
+    }
+}
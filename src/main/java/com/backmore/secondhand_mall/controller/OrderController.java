@@ -1,17 +1,33 @@
 package com.backmore.secondhand_mall.controller;
 
+import com.backmore.secondhand_mall.dto.CursorPage;
 import com.backmore.secondhand_mall.entity.Order;
 import com.backmore.secondhand_mall.entity.OrderItem;
+import com.backmore.secondhand_mall.exception.FlashSaleConflictException;
+import com.backmore.secondhand_mall.exception.InsufficientStockException;
+import com.backmore.secondhand_mall.exception.OrderNotFoundException;
+import com.backmore.secondhand_mall.exception.OrderStateConflictException;
+import com.backmore.secondhand_mall.service.IdempotencyService;
+import com.backmore.secondhand_mall.service.OrderExportService;
 import com.backmore.secondhand_mall.service.OrderService;
+import com.backmore.secondhand_mall.service.OrderStateService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -25,9 +41,27 @@ public class OrderController {
 
     @Autowired
     private OrderService orderService;
+    
+    @Autowired
+    private OrderExportService orderExportService;
+    
+    @Autowired
+    private OrderStateService orderStateService;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
 
+    /**
+     * 创建订单，带Idempotency-Key请求头时重试不会重复下单
+     */
     @PostMapping
-    public ResponseEntity<?> createOrder(@RequestBody Order order) {
+    public ResponseEntity<?> createOrder(@RequestBody Order order,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, idempotencyScope("order:create"), order,
+                () -> doCreateOrder(order));
+    }
+
+    private ResponseEntity<?> doCreateOrder(Order order) {
         try {
             // 获取当前认证用户信息
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -42,6 +76,11 @@ public class OrderController {
             Order createdOrder = orderService.createOrder(order);
             logger.info("订单创建成功: {}", createdOrder.getId());
             return ResponseEntity.ok(createdOrder);
+        } catch (InsufficientStockException | FlashSaleConflictException e) {
+            logger.warn("创建订单失败: {}", e.getMessage());
+            Map<String, String> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (Exception e) {
             logger.error("创建订单时发生错误: {}", e.getMessage(), e);
             Map<String, String> response = new HashMap<>();
@@ -114,14 +153,98 @@ public class OrderController {
         }
     }
 
+    @GetMapping("/user/{userId}/history")
+    public ResponseEntity<?> getOrderHistory(
+            @PathVariable Long userId,
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(value = "includeItems", defaultValue = "true") boolean includeItems) {
+        try {
+            logger.info("分页获取用户订单历史，用户ID={}, status={}, page={}", userId, status, page);
+            Page<Order> result = orderService.getOrderHistory(
+                    userId, status, Math.max(page, 0), Math.min(Math.max(size, 1), 100), includeItems);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            logger.error("分页获取用户订单历史时发生错误: {}", e.getMessage(), e);
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "获取订单列表失败: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    @GetMapping("/user/{userId}/feed")
+    public ResponseEntity<?> getOrdersByUserIdCursor(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(value = "includeItems", defaultValue = "false") boolean includeItems) {
+        try {
+            logger.info("游标分页获取用户订单，用户ID={}, cursor={}", userId, cursor);
+            CursorPage<Order> result = orderService.getOrdersByUserIdCursor(
+                    userId, cursor, Math.min(Math.max(size, 1), 100), includeItems);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        } catch (Exception e) {
+            logger.error("游标分页获取用户订单时发生错误: {}", e.getMessage(), e);
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "获取订单列表失败: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     @GetMapping
     public List<Order> getAllOrders() {
         return orderService.getAllOrders();
     }
 
+    /**
+     * 流式导出订单（管理员），逐行读取逐行写出，不在内存中缓存整个结果
+     * @param format ndjson 或 csv
+     * @param from 创建日期起（含）
+     * @param to 创建日期止（含）
+     * @param status 状态筛选，可传多个
+     * @param includeArchived 是否包含已归档的历史订单，默认包含
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportOrders(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(defaultValue = "true") boolean includeArchived) {
+        OrderExportService.Format exportFormat;
+        try {
+            exportFormat = OrderExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "不支持的导出格式: " + format);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
+        logger.info("导出订单，格式={}, from={}, to={}, status={}, includeArchived={}", exportFormat, from, to, status, includeArchived);
+        LocalDateTime fromTime = from != null ? from.atStartOfDay() : null;
+        LocalDateTime toTime = to != null ? to.plusDays(1).atStartOfDay() : null;
+        StreamingResponseBody body = out -> orderExportService.export(exportFormat, fromTime, toTime, status, includeArchived, out);
+        
+        boolean csv = exportFormat == OrderExportService.Format.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=orders." + (csv ? "csv" : "ndjson"))
+                .body(body);
+    }
+
     @PutMapping
-    public Order updateOrder(@RequestBody Order order) {
-        return orderService.updateOrder(order);
+    public ResponseEntity<?> updateOrder(@RequestBody Order order) {
+        try {
+            return ResponseEntity.ok(orderService.updateOrder(order));
+        } catch (OrderNotFoundException e) {
+            return stateError(order.getId(), e);
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -158,29 +281,13 @@ public class OrderController {
         try {
             logger.info("取消订单，ID={}", id);
             
-            // 首先检查订单是否存在
-            Order order = orderService.getOrderById(id);
-            if (order == null) {
-                logger.warn("订单不存在: {}", id);
-                Map<String, String> response = new HashMap<>();
-                response.put("error", "订单不存在");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-            }
-            
-            // 检查订单状态是否允许取消
-            if (!"PENDING".equals(order.getStatus()) && !"待付款".equals(order.getStatus())) {
-                logger.warn("订单状态不允许取消: {} - {}", id, order.getStatus());
-                Map<String, String> response = new HashMap<>();
-                response.put("error", "只有待付款订单可以取消");
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-            }
-            
-            // 取消订单
-            order.setStatus("CANCELED");
-            Order updatedOrder = orderService.updateOrder(order);
+            // 条件更新：只有待付款订单会被取消，库存预占随取消事件释放
+            Order updatedOrder = orderStateService.transition(id, OrderStateService.Transition.CANCEL);
             logger.info("订单已取消: {}", id);
             
             return ResponseEntity.ok(updatedOrder);
+        } catch (OrderNotFoundException | OrderStateConflictException e) {
+            return stateError(id, e);
         } catch (Exception e) {
             logger.error("取消订单时发生错误: {}", e.getMessage(), e);
             Map<String, String> response = new HashMap<>();
@@ -196,43 +303,25 @@ public class OrderController {
      * @return 更新后的订单
      */
     @PutMapping("/{id}/pay")
-    public ResponseEntity<?> payOrder(@PathVariable Long id, @RequestBody(required = false) Map<String, Object> paymentData) {
+    public ResponseEntity<?> payOrder(@PathVariable Long id, @RequestBody(required = false) Map<String, Object> paymentData,
+                                      @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute(idempotencyKey, idempotencyScope("order:pay:" + id), paymentData,
+                () -> doPayOrder(id, paymentData));
+    }
+
+    private ResponseEntity<?> doPayOrder(Long id, Map<String, Object> paymentData) {
         try {
             logger.info("支付订单，ID={}，支付数据={}", id, paymentData);
             
-            // 首先检查订单是否存在
-            Order order = orderService.getOrderById(id);
-            if (order == null) {
-                logger.warn("订单不存在: {}", id);
-                Map<String, String> response = new HashMap<>();
-                response.put("error", "订单不存在");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-            }
-            
-            // 检查订单状态是否允许支付
-            if (!"PENDING".equals(order.getStatus()) && !"待付款".equals(order.getStatus())) {
-                logger.warn("订单状态不允许支付: {} - {}", id, order.getStatus());
-                Map<String, String> response = new HashMap<>();
-                response.put("error", "只有待付款订单可以支付");
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-            }
-            
-            // 如果提供了支付方式，则更新订单的支付方式
-            if (paymentData != null && paymentData.containsKey("paymentMethod")) {
-                order.setPaymentMethod((String) paymentData.get("paymentMethod"));
-            }
-            
-            // 直接将订单状态设置为已完成，跳过待发货和已发货状态
-            order.setStatus("COMPLETED");
+            String paymentMethod = paymentData != null ? (String) paymentData.get("paymentMethod") : null;
             
-            // 更新订单的更新时间
-            order.setUpdatedAt(LocalDateTime.now());
-            
-            // 保存订单
-            Order updatedOrder = orderService.updateOrder(order);
+            // 直接将订单状态设置为已完成，跳过待发货和已发货状态，同时确认库存预占
+            Order updatedOrder = orderStateService.pay(id, paymentMethod);
             logger.info("订单已支付并完成: {}", id);
             
             return ResponseEntity.ok(updatedOrder);
+        } catch (OrderNotFoundException | OrderStateConflictException e) {
+            return stateError(id, e);
         } catch (Exception e) {
             logger.error("支付订单时发生错误: {}", e.getMessage(), e);
             Map<String, String> response = new HashMap<>();
@@ -251,35 +340,13 @@ public class OrderController {
         try {
             logger.info("确认收货，ID={}", id);
             
-            // 首先检查订单是否存在
-            Order order = orderService.getOrderById(id);
-            if (order == null) {
-                logger.warn("订单不存在: {}", id);
-                Map<String, String> response = new HashMap<>();
-                response.put("error", "订单不存在");
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-            }
-            
-            // 检查订单状态是否允许确认收货（通常是已发货状态，但我们也允许待发货状态直接确认完成）
-            if (!"SHIPPED".equals(order.getStatus()) && !"已发货".equals(order.getStatus()) &&
-                !"PAID".equals(order.getStatus()) && !"待发货".equals(order.getStatus())) {
-                logger.warn("订单状态不允许确认收货: {} - {}", id, order.getStatus());
-                Map<String, String> response = new HashMap<>();
-                response.put("error", "只有已发货或待发货订单可以确认收货");
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-            }
-            
-            // 将订单状态设置为已完成
-            order.setStatus("COMPLETED");
-            
-            // 更新订单的更新时间
-            order.setUpdatedAt(LocalDateTime.now());
-            
-            // 保存订单
-            Order updatedOrder = orderService.updateOrder(order);
+            // 已发货或待发货订单可以确认收货
+            Order updatedOrder = orderStateService.transition(id, OrderStateService.Transition.CONFIRM);
             logger.info("订单已确认收货并完成: {}", id);
             
             return ResponseEntity.ok(updatedOrder);
+        } catch (OrderNotFoundException | OrderStateConflictException e) {
+            return stateError(id, e);
         } catch (Exception e) {
             logger.error("确认收货时发生错误: {}", e.getMessage(), e);
             Map<String, String> response = new HashMap<>();
@@ -287,4 +354,20 @@ public class OrderController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
+    
+    // 幂等键按当前用户隔离，不同用户使用相同的键互不影响
+    private String idempotencyScope(String operation) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String user = authentication != null ? authentication.getName() : "anonymous";
+        return user + ":" + operation;
+    }
+    
+    // 状态迁移失败：订单不存在返回404，状态不满足返回409
+    private ResponseEntity<?> stateError(Long id, RuntimeException e) {
+        logger.warn("订单状态迁移失败: {} - {}", id, e.getMessage());
+        Map<String, String> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        HttpStatus status = e instanceof OrderNotFoundException ? HttpStatus.NOT_FOUND : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(response);
+    }
 }
\ No newline at end of file
@@ -1,12 +1,20 @@
 package com.backmore.secondhand_mall.controller;
 
+import com.backmore.secondhand_mall.dto.CursorPage;
+import com.backmore.secondhand_mall.dto.ProductBrowseResponse;
+import com.backmore.secondhand_mall.dto.ProductCardDTO;
 import com.backmore.secondhand_mall.dto.ProductRequest;
 import com.backmore.secondhand_mall.dto.ProductResponse;
 import com.backmore.secondhand_mall.entity.Product;
 import com.backmore.secondhand_mall.entity.User;
+import com.backmore.secondhand_mall.service.ProductDetailService;
+import com.backmore.secondhand_mall.service.ProductFacetService;
+import com.backmore.secondhand_mall.service.ProductSearchService;
 import com.backmore.secondhand_mall.service.ProductService;
 import com.backmore.secondhand_mall.service.UserService;
+import com.backmore.secondhand_mall.util.Bm25Index;
 import com.backmore.secondhand_mall.util.JsonUtil;
+import com.backmore.secondhand_mall.util.ProductFacetIndex;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -14,10 +22,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
@@ -28,7 +38,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/products")
@@ -43,6 +52,15 @@ public class ProductController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private ProductSearchService productSearchService;
+    
+    @Autowired
+    private ProductFacetService productFacetService;
+    
+    @Autowired
+    private ProductDetailService productDetailService;
+    
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -103,6 +121,10 @@ public class ProductController {
             logger.info("商品创建成功: ID={}", product.getId());
             
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            // 图片格式不支持、参数无效等客户端错误
+            logger.warn("创建商品失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().body("创建商品失败: " + e.getMessage());
         } catch (Exception e) {
             logger.error("创建商品时发生异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("创建商品失败: " + e.getMessage());
@@ -136,58 +158,19 @@ public class ProductController {
     @GetMapping("/{id}")
     public ResponseEntity<?> getProductById(@PathVariable Long id) {
         try {
-            Optional<Product> productOpt = productService.findById(id);
+            // 详情视图（含卖家信息）走缓存，商品或卖家变更时失效
+            Optional<Map<String, Object>> detailOpt = productDetailService.getDetail(id);
             
-            if (!productOpt.isPresent()) {
+            if (!detailOpt.isPresent()) {
                 Map<String, String> response = new HashMap<>();
                 response.put("message", "商品不存在: " + id);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
             
-            Product product = productOpt.get();
-            
             // 增加浏览量
             productService.incrementViews(id);
             
-            // 增加返回卖家信息
-            Map<String, Object> enrichedProduct = new HashMap<>();
-            // 复制产品的所有属性到新的map中
-            enrichedProduct.put("id", product.getId());
-            enrichedProduct.put("name", product.getName());
-            enrichedProduct.put("description", product.getDescription());
-            enrichedProduct.put("price", product.getPrice());
-            enrichedProduct.put("originalPrice", product.getOriginalPrice());
-            enrichedProduct.put("categoryId", product.getCategoryId());
-            enrichedProduct.put("stock", product.getStock());
-            enrichedProduct.put("mainImage", product.getMainImage());
-            enrichedProduct.put("images", product.getImages());
-            enrichedProduct.put("status", product.getStatus());
-            enrichedProduct.put("sellerId", product.getSellerId());
-            enrichedProduct.put("brand", product.getBrand());
-            enrichedProduct.put("condition", product.getCondition());
-            enrichedProduct.put("usedDuration", product.getUsedDuration());
-            enrichedProduct.put("purchaseDate", product.getPurchaseDate());
-            enrichedProduct.put("faceToFace", product.getFaceToFace());
-            enrichedProduct.put("delivery", product.getDelivery());
-            enrichedProduct.put("faceToFaceLocation", product.getFaceToFaceLocation());
-            enrichedProduct.put("createTime", product.getCreateTime());
-            enrichedProduct.put("updateTime", product.getUpdateTime());
-            
-            // 添加卖家信息
-            try {
-                Optional<User> sellerOpt = userService.findById(product.getSellerId());
-                if (sellerOpt.isPresent()) {
-                    User seller = sellerOpt.get();
-                    enrichedProduct.put("seller", seller.getUsername());
-                    enrichedProduct.put("sellerAvatar", seller.getAvatar());
-                } else {
-                    enrichedProduct.put("seller", "用户" + product.getSellerId());
-                }
-            } catch (Exception e) {
-                enrichedProduct.put("seller", "用户" + product.getSellerId());
-            }
-            
-            return ResponseEntity.ok(enrichedProduct);
+            return ResponseEntity.ok(detailOpt.get());
         } catch (Exception e) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "获取商品详情失败: " + e.getMessage());
@@ -195,6 +178,15 @@ public class ProductController {
         }
     }
 
+    /**
+     * 商品详情缓存统计（管理员）
+     */
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getDetailCacheStats() {
+        return ResponseEntity.ok(productDetailService.stats());
+    }
+
     /**
      * 获取所有商品
      */
@@ -204,12 +196,86 @@ public class ProductController {
             @RequestParam(defaultValue = "10") int size) {
         try {
             Pageable pageable = PageRequest.of(page, size);
-            Page<Product> productPage = productService.findAll(pageable);
             
-            // 转换为响应对象
-            Page<ProductResponse> responsePage = productPage.map(ProductResponse::fromEntity);
+            // 列表页只查询卡片字段，完整商品信息在详情接口加载
+            Page<ProductCardDTO> cardPage = productService.findAllCards(pageable);
             
-            return ResponseEntity.ok(responsePage);
+            return ResponseEntity.ok(cardPage);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("获取商品列表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 搜索商品（名称、品牌、描述全文检索）
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchProducts(
+            @RequestParam("q") String keyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            int pageSize = Math.min(Math.max(size, 1), 100);
+            int pageNumber = Math.max(page, 0);
+            
+            Bm25Index.SearchHits hits = productSearchService.search(keyword, pageNumber * pageSize, pageSize);
+            List<Long> ids = hits.hits().stream().map(Bm25Index.Hit::productId).toList();
+            List<ProductCardDTO> cards = productService.findCardsByIds(ids);
+            
+            return ResponseEntity.ok(new PageImpl<>(cards, PageRequest.of(pageNumber, pageSize), hits.total()));
+        } catch (Exception e) {
+            logger.error("搜索商品失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("搜索商品失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 组合筛选商品并返回分面计数
+     * 同一参数传多个值时取并集，不同参数之间取交集
+     */
+    @GetMapping("/browse")
+    public ResponseEntity<?> browseProducts(
+            @RequestParam(required = false) List<String> categoryId,
+            @RequestParam(required = false) List<String> condition,
+            @RequestParam(required = false) List<String> priceBand,
+            @RequestParam(required = false) Boolean faceToFace,
+            @RequestParam(required = false) Boolean delivery,
+            @RequestParam(defaultValue = "true") Boolean online,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            int pageSize = Math.min(Math.max(size, 1), 100);
+            int pageNumber = Math.max(page, 0);
+            
+            ProductFacetIndex.Query query = new ProductFacetIndex.Query()
+                    .where(ProductFacetIndex.DIM_CATEGORY, categoryId)
+                    .where(ProductFacetIndex.DIM_CONDITION, condition)
+                    .where(ProductFacetIndex.DIM_PRICE_BAND, priceBand)
+                    .where(ProductFacetIndex.DIM_FACE_TO_FACE, faceToFace)
+                    .where(ProductFacetIndex.DIM_DELIVERY, delivery)
+                    .where(ProductFacetIndex.DIM_STATUS, online);
+            ProductFacetIndex.Result result = productFacetService.browse(query, pageNumber * pageSize, pageSize);
+            List<ProductCardDTO> cards = productService.findCardsByIds(result.productIds());
+            
+            return ResponseEntity.ok(new ProductBrowseResponse(cards, result.total(), pageNumber, pageSize, result.facets()));
+        } catch (Exception e) {
+            logger.error("筛选商品失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("筛选商品失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 游标分页获取商品（无限滚动使用，避免深分页的OFFSET扫描）
+     */
+    @GetMapping("/feed")
+    public ResponseEntity<?> getProductFeed(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            CursorPage<ProductCardDTO> result = productService.findCardsByCursor(cursor, Math.min(Math.max(size, 1), 100));
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("获取商品列表失败: " + e.getMessage());
         }
@@ -254,6 +320,9 @@ public class ProductController {
             ProductResponse response = ProductResponse.fromEntity(product);
             
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            logger.warn("更新商品失败: {}", e.getMessage());
+            return ResponseEntity.badRequest().body("更新商品失败: " + e.getMessage());
         } catch (Exception e) {
             logger.error("更新商品失败", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("更新商品失败: " + e.getMessage());
@@ -269,15 +338,10 @@ public class ProductController {
             // 获取当前登录用户ID
             Long userId = getCurrentUserId();
             
-            // 获取用户商品
-            List<Product> products = productService.findBySellerId(userId);
-            
-            // 转换为响应对象
-            List<ProductResponse> responses = products.stream()
-                    .map(ProductResponse::fromEntity)
-                    .collect(Collectors.toList());
+            // 获取用户商品卡片
+            List<ProductCardDTO> cards = productService.findCardsBySellerId(userId);
             
-            return ResponseEntity.ok(responses);
+            return ResponseEntity.ok(cards);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("获取用户商品失败: " + e.getMessage());
         }
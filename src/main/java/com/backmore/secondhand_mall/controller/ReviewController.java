@@ -1,14 +1,18 @@
 package com.backmore.secondhand_mall.controller;
 
+import com.backmore.secondhand_mall.dto.CursorPage;
 import com.backmore.secondhand_mall.dto.ProductRatingDTO;
+import com.backmore.secondhand_mall.dto.RatingDistributionDTO;
 import com.backmore.secondhand_mall.entity.Review;
 import com.backmore.secondhand_mall.entity.User;
 import com.backmore.secondhand_mall.repository.UserRepository;
+import com.backmore.secondhand_mall.service.RatingSummaryService;
 import com.backmore.secondhand_mall.service.ReviewService;
 import com.backmore.secondhand_mall.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -27,6 +31,9 @@ public class ReviewController {
 
     @Autowired
     private ReviewService reviewService;
+
+    @Autowired
+    private RatingSummaryService ratingSummaryService;
     
     @Autowired
     private UserService userService;
@@ -116,42 +123,35 @@ public class ReviewController {
         // 将评价转换为带有用户信息的Map
         List<Map<String, Object>> enrichedReviews = new ArrayList<>();
         for (Review review : reviews) {
-            Map<String, Object> enrichedReview = new HashMap<>();
-            // 复制评价的所有属性
-            enrichedReview.put("id", review.getId());
-            enrichedReview.put("productId", review.getProductId());
-            enrichedReview.put("userId", review.getUserId());
-            enrichedReview.put("orderId", review.getOrderId());
-            enrichedReview.put("rating", review.getRating());
-            enrichedReview.put("comment", review.getComment());
-            enrichedReview.put("images", review.getImages());
-            enrichedReview.put("anonymous", review.getAnonymous());
-            enrichedReview.put("status", review.getStatus());
-            enrichedReview.put("createdAt", review.getCreatedAt());
-            enrichedReview.put("updatedAt", review.getUpdatedAt());
+            enrichedReviews.add(enrichReview(review));
+        }
+        
+        return ResponseEntity.ok(enrichedReviews);
+    }
+
+    /**
+     * 游标分页获取商品评价（无限滚动使用）
+     */
+    @GetMapping("/product/{productId}/feed")
+    public ResponseEntity<?> getReviewFeedByProductId(
+            @PathVariable Long productId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            CursorPage<Review> slice = reviewService.getReviewsByProductIdCursor(
+                    productId, cursor, Math.min(Math.max(size, 1), 100));
             
-            // 添加用户信息
-            if (review.getAnonymous() == null || !review.getAnonymous()) {
-                try {
-                    Optional<User> userOpt = userRepository.findById(review.getUserId());
-                    if (userOpt.isPresent()) {
-                        User user = userOpt.get();
-                        enrichedReview.put("username", user.getUsername());
-                        enrichedReview.put("userAvatar", user.getAvatar());
-                    } else {
-                        enrichedReview.put("username", "用户" + review.getUserId());
-                    }
-                } catch (Exception e) {
-                    enrichedReview.put("username", "用户" + review.getUserId());
-                }
-            } else {
-                enrichedReview.put("username", "匿名用户");
+            List<Map<String, Object>> enrichedReviews = new ArrayList<>();
+            for (Review review : slice.getContent()) {
+                enrichedReviews.add(enrichReview(review));
             }
             
-            enrichedReviews.add(enrichedReview);
+            return ResponseEntity.ok(new CursorPage<>(enrichedReviews, slice.getNextCursor(), slice.isHasNext()));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         }
-        
-        return ResponseEntity.ok(enrichedReviews);
     }
 
     /**
@@ -163,22 +163,42 @@ public class ReviewController {
     }
 
     /**
-     * 获取商品的评分信息
+     * 获取商品的评分信息，读取评分汇总表，只统计审核通过的评价
      */
     @GetMapping("/product/{productId}/rating")
     public ResponseEntity<ProductRatingDTO> getProductRating(@PathVariable Long productId) {
-        Double averageRating = reviewService.getAverageRatingByProductId(productId);
-        List<Review> reviews = reviewService.getReviewsByProductId(productId);
+        RatingDistributionDTO summary = ratingSummaryService.getSummary(productId);
         
         ProductRatingDTO ratingInfo = new ProductRatingDTO(
             productId,
-            averageRating,
-            reviews.size()
+            summary.getAverageRating(),
+            summary.getReviewCount()
         );
         
         return ResponseEntity.ok(ratingInfo);
     }
 
+    /**
+     * 获取商品的1-5星评分分布
+     */
+    @GetMapping("/product/{productId}/rating/distribution")
+    public ResponseEntity<RatingDistributionDTO> getRatingDistribution(@PathVariable Long productId) {
+        return ResponseEntity.ok(ratingSummaryService.getSummary(productId));
+    }
+
+    /**
+     * 从评价表重新计算全部商品的评分汇总
+     */
+    @PostMapping("/rating-summary/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildRatingSummary() {
+        Map<String, Object> response = new HashMap<>();
+        boolean started = ratingSummaryService.startRebuild();
+        response.put("started", started);
+        response.put("running", ratingSummaryService.isRebuildRunning());
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(response);
+    }
+
     /**
      * 根据状态获取评价
      */
@@ -238,4 +258,43 @@ public class ReviewController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
         }
     }
+
+    /**
+     * 将评价转换为带有用户名称和头像信息的Map
+     */
+    private Map<String, Object> enrichReview(Review review) {
+        Map<String, Object> enrichedReview = new HashMap<>();
+        // 复制评价的所有属性
+        enrichedReview.put("id", review.getId());
+        enrichedReview.put("productId", review.getProductId());
+        enrichedReview.put("userId", review.getUserId());
+        enrichedReview.put("orderId", review.getOrderId());
+        enrichedReview.put("rating", review.getRating());
+        enrichedReview.put("comment", review.getComment());
+        enrichedReview.put("images", review.getImages());
+        enrichedReview.put("anonymous", review.getAnonymous());
+        enrichedReview.put("status", review.getStatus());
+        enrichedReview.put("createdAt", review.getCreatedAt());
+        enrichedReview.put("updatedAt", review.getUpdatedAt());
+        
+        // 添加用户信息
+        if (review.getAnonymous() == null || !review.getAnonymous()) {
+            try {
+                Optional<User> userOpt = userRepository.findById(review.getUserId());
+                if (userOpt.isPresent()) {
+                    User user = userOpt.get();
+                    enrichedReview.put("username", user.getUsername());
+                    enrichedReview.put("userAvatar", user.getAvatar());
+                } else {
+                    enrichedReview.put("username", "用户" + review.getUserId());
+                }
+            } catch (Exception e) {
+                enrichedReview.put("username", "用户" + review.getUserId());
+            }
+        } else {
+            enrichedReview.put("username", "匿名用户");
+        }
+        
+        return enrichedReview;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.backmore.secondhand_mall.controller;
+
+import com.backmore.secondhand_mall.entity.User;
+import com.backmore.secondhand_mall.service.SellerStatsService;
+import com.backmore.secondhand_mall.service.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/sellers")
+public class SellerStatsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SellerStatsController.class);
+
+    private static final int DEFAULT_DAYS = 30;
+    private static final int MAX_DAYS = 366;
+
+    @Autowired
+    private SellerStatsService sellerStatsService;
+
+    @Autowired
+    private UserService userService;
+
+    /**
+     * 卖家销售统计：每日成交金额、订单数、件数以及商品排行，默认最近30天
+     */
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<?> getStats(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        Map<String, String> response = new HashMap<>();
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            boolean isAdmin = authentication.getAuthorities().contains(new SimpleGrantedAuthority("ROLE_ADMIN"));
+            Optional<User> seller = userService.findById(id);
+            if (seller.isEmpty()) {
+                response.put("error", "卖家不存在");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }
+            // 只有管理员或卖家本人可以查看
+            if (!isAdmin && !seller.get().getUsername().equals(authentication.getName())) {
+                response.put("error", "无权查看其他卖家的统计");
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+            }
+
+            LocalDate end = to != null ? to : LocalDate.now();
+            LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+            if (start.isAfter(end) || ChronoUnit.DAYS.between(start, end) >= MAX_DAYS) {
+                response.put("error", "日期范围无效，最多查询" + MAX_DAYS + "天");
+                return ResponseEntity.badRequest().body(response);
+            }
+            return ResponseEntity.ok(sellerStatsService.getStats(id, start, end));
+        } catch (Exception e) {
+            logger.error("获取卖家统计失败: {}", e.getMessage(), e);
+            response.put("error", "获取卖家统计失败: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * 回填历史订单的销售汇总，从上次中断处继续
+     */
+    @PostMapping("/stats/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> backfill(@RequestParam(defaultValue = "false") boolean reset) {
+        Map<String, Object> response = new HashMap<>();
+        boolean started = sellerStatsService.startBackfill(reset);
+        response.put("started", started);
+        response.put("running", sellerStatsService.isBackfillRunning());
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(response);
+    }
+}
@@ -1,23 +1,19 @@
 package com.backmore.secondhand_mall.controller;
 
+import com.backmore.secondhand_mall.service.ImageStorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.Base64;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api")
@@ -26,8 +22,8 @@ public class UploadController {
 
     private static final Logger logger = LoggerFactory.getLogger(UploadController.class);
 
-    @Value("${file.upload-dir:uploads/images}")
-    private String uploadDir;
+    @Autowired
+    private ImageStorageService imageStorageService;
 
     @PostMapping(value = "/upload/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> uploadImage(@RequestParam("image") MultipartFile file) {
@@ -49,38 +45,14 @@ public class UploadController {
 
             logger.info("上传图片类型: {}", contentType);
 
-            // 创建上传目录
-            File uploadDirFile = new File(uploadDir);
-            if (!uploadDirFile.exists()) {
-                boolean dirCreated = uploadDirFile.mkdirs();
-                if (!dirCreated) {
-                    logger.error("无法创建目录: {}", uploadDir);
-                    return ResponseEntity.status(500).body(Map.of("error", "无法创建上传目录"));
-                }
-            }
-            
-            // 生成文件名
-            String originalFilename = file.getOriginalFilename();
-            String fileExtension = originalFilename != null && originalFilename.contains(".") ? 
-                    originalFilename.substring(originalFilename.lastIndexOf(".")) : ".jpg";
-            String newFilename = "product_" + UUID.randomUUID() + fileExtension;
-            
-            // 保存文件
-            Path targetLocation = Paths.get(uploadDir).resolve(newFilename);
-            Files.copy(file.getInputStream(), targetLocation);
-            
-            logger.info("图片保存成功: {}", targetLocation.toString());
-            
-            // 将图片转换为 Base64 编码
-            byte[] fileContent = file.getBytes();
-            String base64Image = Base64.getEncoder().encodeToString(fileContent);
-            String dataUrl = "data:" + contentType + ";base64," + base64Image;
+            // 按内容保存图片，相同图片只保存一份
+            String url = imageStorageService.store(file.getBytes(), contentType);
             
             // 返回图片URL
             Map<String, String> response = new HashMap<>();
-            response.put("url", dataUrl);
+            response.put("url", url);
             
-            logger.info("返回Base64图片数据 (长度: {})", dataUrl.length());
+            logger.info("返回图片URL: {}", url);
             
             return ResponseEntity.ok(response);
         } catch (IOException e) {
@@ -109,9 +81,13 @@ public class UploadController {
                 base64String = (String) imageObj;
                 logger.info("收到字符串类型的图片数据，长度: {}", base64String.length());
             } else if (imageObj instanceof List) {
-                // 如果是图片列表，直接返回
+                // 如果是图片列表，逐张落盘后返回URL列表
                 logger.info("收到列表类型的图片数据");
-                return ResponseEntity.ok(Map.of("url", imageObj));
+                List<String> urls = new ArrayList<>();
+                for (Object item : (List<?>) imageObj) {
+                    urls.add(imageStorageService.storeDataUrl(String.valueOf(item)));
+                }
+                return ResponseEntity.ok(Map.of("url", urls));
             } else {
                 logger.warn("不支持的图片数据类型: {}", imageObj.getClass().getName());
                 return ResponseEntity.badRequest().body(Map.of("error", "不支持的图片数据格式"));
@@ -120,12 +96,12 @@ public class UploadController {
             // 如果前端直接发送的是JSON字符串形式的图片列表，需要特殊处理
             if (base64String.startsWith("[") && base64String.endsWith("]")) {
                 logger.info("收到JSON格式的图片列表");
-                return ResponseEntity.ok(Map.of("url", base64String));
+                return ResponseEntity.ok(Map.of("url", imageStorageService.storeImagesField(base64String)));
             }
             
-            // 返回URL (实际上就是原始的base64字符串)
+            // 落盘后返回URL
             Map<String, String> response = new HashMap<>();
-            response.put("url", base64String);
+            response.put("url", imageStorageService.storeDataUrl(base64String));
             
             logger.info("成功处理Base64图片数据");
             
@@ -1,9 +1,10 @@
 package com.backmore.secondhand_mall.controller;
 
 import com.backmore.secondhand_mall.entity.User;
+import com.backmore.secondhand_mall.service.ImageStorageService;
+import com.backmore.secondhand_mall.service.ProductDetailService;
 import com.backmore.secondhand_mall.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -16,28 +17,25 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/users")
 @CrossOrigin(origins = "http://localhost:5173") // 允许前端访问
 public class UserController {
 
-    @Value("${file.upload-dir:uploads/avatars}")
-    private String uploadDir;
-
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ProductDetailService productDetailService;
+
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     public User createUser(@RequestBody User user) {
@@ -48,6 +46,7 @@ public class UserController {
     @PreAuthorize("hasRole('ADMIN')")
     public void deleteUser(@PathVariable Long id) {
         userService.deleteById(id);
+        productDetailService.evictBySeller(id);
     }
 
     @GetMapping("/{id}")
@@ -67,7 +66,10 @@ public class UserController {
     @PutMapping
     @PreAuthorize("hasRole('ADMIN')")
     public User updateUser(@RequestBody User user) {
-        return userService.update(user);
+        User updated = userService.update(user);
+        // 用户名和头像会出现在其商品详情中
+        productDetailService.evictBySeller(updated.getId());
+        return updated;
     }
 
     @PutMapping("/{id}/profile")
@@ -109,6 +111,9 @@ public class UserController {
             }
 
             User updatedUser = userService.update(user);
+            if (profileData.containsKey("username")) {
+                productDetailService.evictBySeller(id);
+            }
             return ResponseEntity.ok(updatedUser);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -146,42 +151,13 @@ public class UserController {
                 return ResponseEntity.badRequest().body(Map.of("error", "只能上传图片文件"));
             }
 
-            // 创建上传目录
-            File uploadDirFile = new File(uploadDir);
-            if (!uploadDirFile.exists()) {
-                boolean dirCreated = uploadDirFile.mkdirs();
-                if (!dirCreated) {
-                    System.out.println("无法创建目录: " + uploadDir);
-                    return ResponseEntity.status(500).body(Map.of("error", "无法创建上传目录"));
-                }
-            }
-            
-            // 输出上传目录的绝对路径，用于调试
-            System.out.println("上传目录的绝对路径: " + uploadDirFile.getAbsolutePath());
-
-            // 生成文件名
-            String originalFilename = file.getOriginalFilename();
-            String fileExtension = originalFilename != null ? originalFilename.substring(originalFilename.lastIndexOf(".")) : ".jpg";
-            String newFilename = "avatar_" + id + "_" + UUID.randomUUID() + fileExtension;
-            
-            // 保存文件
-            Path targetLocation = Paths.get(uploadDir).resolve(newFilename);
-            Files.copy(file.getInputStream(), targetLocation);
+            // 按内容保存头像，数据库只保存URL
+            String avatarUrl = imageStorageService.store(file.getBytes(), contentType);
             
-            // 输出文件保存路径，用于调试
-            System.out.println("文件保存路径: " + targetLocation.toAbsolutePath());
-            
-            // 将图片转换为 Base64 编码
-            byte[] fileContent = file.getBytes();
-            String base64Image = Base64.getEncoder().encodeToString(fileContent);
-            String dataUrl = "data:" + contentType + ";base64," + base64Image;
-            
-            // 更新用户头像路径 - 使用 Base64 编码
-            user.setAvatar(dataUrl);
+            // 更新用户头像路径
+            user.setAvatar(avatarUrl);
             User updatedUser = userService.update(user);
-            
-            // 输出头像URL，用于调试
-            System.out.println("头像数据URL长度: " + dataUrl.length());
+            productDetailService.evictBySeller(id);
             
             Map<String, Object> response = new HashMap<>();
             response.put("user", updatedUser);
@@ -0,0 +1,70 @@
+package com.backmore.secondhand_mall.dto;
+
+import java.util.List;
+
+/**
+ * 批量修改购物车的请求，operations按顺序执行
+ * version为客户端持有的购物车版本，不为空时与当前版本不一致则整批拒绝
+ */
+public class CartPatchRequest {
+    private Long userId;
+    private Long version;
+    private List<Operation> operations;
+
+    /**
+     * 单个修改操作：add在原数量上增加，update设置数量（为0即移除），remove移除商品
+     */
+    public static class Operation {
+        private String op;
+        private Long productId;
+        private Integer quantity;
+
+        public String getOp() {
+            return op;
+        }
+
+        public void setOp(String op) {
+            this.op = op;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+
+        public Integer getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(Integer quantity) {
+            this.quantity = quantity;
+        }
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<Operation> operations) {
+        this.operations = operations;
+    }
+}
@@ -0,0 +1,77 @@
+package com.backmore.secondhand_mall.dto;
+
+import com.backmore.secondhand_mall.entity.CartItem;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 批量修改购物车的结果，只包含有变化的购物车项和整车合计
+ */
+public class CartPatchResponse {
+    private Long cartId;
+    private long version;
+    // 新增或数量变化的购物车项，已补充商品信息
+    private List<CartItem> changedItems;
+    // 被移除的购物车项ID
+    private List<Long> removedItemIds;
+    private int itemCount;
+    private int totalQuantity;
+    private BigDecimal totalPrice;
+
+    public Long getCartId() {
+        return cartId;
+    }
+
+    public void setCartId(Long cartId) {
+        this.cartId = cartId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public List<CartItem> getChangedItems() {
+        return changedItems;
+    }
+
+    public void setChangedItems(List<CartItem> changedItems) {
+        this.changedItems = changedItems;
+    }
+
+    public List<Long> getRemovedItemIds() {
+        return removedItemIds;
+    }
+
+    public void setRemovedItemIds(List<Long> removedItemIds) {
+        this.removedItemIds = removedItemIds;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public int getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public void setTotalQuantity(int totalQuantity) {
+        this.totalQuantity = totalQuantity;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(BigDecimal totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+}
@@ -0,0 +1,68 @@
+package com.backmore.secondhand_mall.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分面筛选结果：当前页商品卡片和各维度的分面计数
+ */
+public class ProductBrowseResponse {
+    private List<ProductCardDTO> content;
+    private long totalElements;
+    private int page;
+    private int size;
+    // 维度 -> 取值 -> 商品数
+    private Map<String, Map<String, Integer>> facets;
+
+    public ProductBrowseResponse() {
+    }
+
+    public ProductBrowseResponse(List<ProductCardDTO> content, long totalElements, int page, int size,
+                                 Map<String, Map<String, Integer>> facets) {
+        this.content = content;
+        this.totalElements = totalElements;
+        this.page = page;
+        this.size = size;
+        this.facets = facets;
+    }
+
+    public List<ProductCardDTO> getContent() {
+        return content;
+    }
+
+    public void setContent(List<ProductCardDTO> content) {
+        this.content = content;
+    }
+
+    public long getTotalElements() {
+        return totalElements;
+    }
+
+    public void setTotalElements(long totalElements) {
+        this.totalElements = totalElements;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public Map<String, Map<String, Integer>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, Map<String, Integer>> facets) {
+        this.facets = facets;
+    }
+}
@@ -0,0 +1,121 @@
+package com.backmore.secondhand_mall.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.util.Date;
+
+/**
+ * 商品列表卡片，只包含列表页需要的字段，不加载描述和图片列表等大字段
+ */
+public class ProductCardDTO {
+    private Long id;
+    private String name;
+    private Double price;
+    private String mainImage;
+    private String condition;
+    private String status;
+    private Integer views;
+    private Integer sales;
+    private Integer stock;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private Date createTime;
+
+    public ProductCardDTO() {
+    }
+
+    // 供JPQL构造器表达式使用，参数顺序需与查询一致
+    public ProductCardDTO(Long id, String name, Double price, String mainImage, String condition,
+                          Boolean status, Integer views, Integer sales, Date createTime, Integer stock) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.mainImage = mainImage;
+        this.condition = condition;
+        this.status = Boolean.TRUE.equals(status) ? "online" : "offline";
+        this.views = views != null ? views : 0;
+        this.sales = sales != null ? sales : 0;
+        this.createTime = createTime;
+        this.stock = stock;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    public String getMainImage() {
+        return mainImage;
+    }
+
+    public void setMainImage(String mainImage) {
+        this.mainImage = mainImage;
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public void setCondition(String condition) {
+        this.condition = condition;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getViews() {
+        return views;
+    }
+
+    public void setViews(Integer views) {
+        this.views = views;
+    }
+
+    public Integer getSales() {
+        return sales;
+    }
+
+    public void setSales(Integer sales) {
+        this.sales = sales;
+    }
+
+    public Date getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(Date createTime) {
+        this.createTime = createTime;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+}
@@ -0,0 +1,139 @@
+package com.backmore.secondhand_mall.dto;
+
+import com.backmore.secondhand_mall.entity.Product;
+
+/**
+ * 构建内存索引用的商品字段，不包含图片等大字段
+ */
+public class ProductIndexDocument {
+    private Long id;
+    private String name;
+    private String brand;
+    private String description;
+    private Boolean status;
+    private Long categoryId;
+    private String condition;
+    private Double price;
+    private Boolean faceToFace;
+    private Boolean delivery;
+    private boolean deleted;
+
+    public ProductIndexDocument() {
+    }
+
+    // 供JPQL构造器表达式使用，参数顺序需与查询一致
+    public ProductIndexDocument(Long id, String name, String brand, String description, Boolean status,
+                                Long categoryId, String condition, Double price, Boolean faceToFace, Boolean delivery) {
+        this.id = id;
+        this.name = name;
+        this.brand = brand;
+        this.description = description;
+        this.status = status;
+        this.categoryId = categoryId;
+        this.condition = condition;
+        this.price = price;
+        this.faceToFace = faceToFace;
+        this.delivery = delivery;
+    }
+
+    public static ProductIndexDocument fromEntity(Product product) {
+        return new ProductIndexDocument(product.getId(), product.getName(), product.getBrand(),
+                product.getDescription(), product.getStatus(), product.getCategoryId(), product.getCondition(),
+                product.getPrice(), product.getFaceToFace(), product.getDelivery());
+    }
+
+    // 已删除商品的占位文档
+    public static ProductIndexDocument removed(Long id) {
+        ProductIndexDocument document = new ProductIndexDocument(id, null, null, null, false, null, null, null, null, null);
+        document.setDeleted(true);
+        return document;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = brand;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Boolean getStatus() {
+        return status;
+    }
+
+    public void setStatus(Boolean status) {
+        this.status = status;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public void setCondition(String condition) {
+        this.condition = condition;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    public Boolean getFaceToFace() {
+        return faceToFace;
+    }
+
+    public void setFaceToFace(Boolean faceToFace) {
+        this.faceToFace = faceToFace;
+    }
+
+    public Boolean getDelivery() {
+        return delivery;
+    }
+
+    public void setDelivery(Boolean delivery) {
+        this.delivery = delivery;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,56 @@
+package com.backmore.secondhand_mall.dto;
+
+import java.util.Map;
+
+/**
+ * 商品评分分布，来自评分汇总表，只统计审核通过的评价
+ */
+public class RatingDistributionDTO {
+    private Long productId;
+    private Integer reviewCount;
+    private Double averageRating;
+    // 星级(1-5) -> 评价数
+    private Map<Integer, Integer> distribution;
+
+    public RatingDistributionDTO() {
+    }
+
+    public RatingDistributionDTO(Long productId, Integer reviewCount, Double averageRating, Map<Integer, Integer> distribution) {
+        this.productId = productId;
+        this.reviewCount = reviewCount;
+        this.averageRating = averageRating;
+        this.distribution = distribution;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Integer getReviewCount() {
+        return reviewCount;
+    }
+
+    public void setReviewCount(Integer reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+
+    public Double getAverageRating() {
+        return averageRating;
+    }
+
+    public void setAverageRating(Double averageRating) {
+        this.averageRating = averageRating;
+    }
+
+    public Map<Integer, Integer> getDistribution() {
+        return distribution;
+    }
+
+    public void setDistribution(Map<Integer, Integer> distribution) {
+        this.distribution = distribution;
+    }
+}
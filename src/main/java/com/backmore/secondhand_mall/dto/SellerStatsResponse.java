@@ -0,0 +1,181 @@
+package com.backmore.secondhand_mall.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 卖家销售统计，数据来自每日汇总表
+ */
+public class SellerStatsResponse {
+    private Long sellerId;
+    private LocalDate from;
+    private LocalDate to;
+    private BigDecimal gmv;
+    private long orderCount;
+    private long unitsSold;
+    private List<DailyStat> daily;
+    private List<ProductStat> products;
+
+    public static class DailyStat {
+        private LocalDate date;
+        private BigDecimal gmv;
+        private long orderCount;
+        private long unitsSold;
+
+        public DailyStat() {
+        }
+
+        public DailyStat(LocalDate date, BigDecimal gmv, long orderCount, long unitsSold) {
+            this.date = date;
+            this.gmv = gmv;
+            this.orderCount = orderCount;
+            this.unitsSold = unitsSold;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public void setDate(LocalDate date) {
+            this.date = date;
+        }
+
+        public BigDecimal getGmv() {
+            return gmv;
+        }
+
+        public void setGmv(BigDecimal gmv) {
+            this.gmv = gmv;
+        }
+
+        public long getOrderCount() {
+            return orderCount;
+        }
+
+        public void setOrderCount(long orderCount) {
+            this.orderCount = orderCount;
+        }
+
+        public long getUnitsSold() {
+            return unitsSold;
+        }
+
+        public void setUnitsSold(long unitsSold) {
+            this.unitsSold = unitsSold;
+        }
+    }
+
+    public static class ProductStat {
+        private Long productId;
+        private BigDecimal gmv;
+        private long orderCount;
+        private long unitsSold;
+
+        public ProductStat() {
+        }
+
+        public ProductStat(Long productId, BigDecimal gmv, long orderCount, long unitsSold) {
+            this.productId = productId;
+            this.gmv = gmv;
+            this.orderCount = orderCount;
+            this.unitsSold = unitsSold;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+
+        public BigDecimal getGmv() {
+            return gmv;
+        }
+
+        public void setGmv(BigDecimal gmv) {
+            this.gmv = gmv;
+        }
+
+        public long getOrderCount() {
+            return orderCount;
+        }
+
+        public void setOrderCount(long orderCount) {
+            this.orderCount = orderCount;
+        }
+
+        public long getUnitsSold() {
+            return unitsSold;
+        }
+
+        public void setUnitsSold(long unitsSold) {
+            this.unitsSold = unitsSold;
+        }
+    }
+
+    public Long getSellerId() {
+        return sellerId;
+    }
+
+    public void setSellerId(Long sellerId) {
+        this.sellerId = sellerId;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public BigDecimal getGmv() {
+        return gmv;
+    }
+
+    public void setGmv(BigDecimal gmv) {
+        this.gmv = gmv;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public long getUnitsSold() {
+        return unitsSold;
+    }
+
+    public void setUnitsSold(long unitsSold) {
+        this.unitsSold = unitsSold;
+    }
+
+    public List<DailyStat> getDaily() {
+        return daily;
+    }
+
+    public void setDaily(List<DailyStat> daily) {
+        this.daily = daily;
+    }
+
+    public List<ProductStat> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<ProductStat> products) {
+        this.products = products;
+    }
+}
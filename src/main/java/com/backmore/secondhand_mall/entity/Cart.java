@@ -23,7 +23,12 @@ public class Cart {
     @Column(name = "update_time")
     private LocalDateTime updateTime;
 
-    @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    // 每次修改递增，由内存购物车维护，客户端批量修改时用于乐观并发控制
+    @Column(name = "version")
+    private Long version;
+
+    // 购物车项由服务层按cartId单独查询，这里不随购物车加载
+    @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<CartItem> items = new ArrayList<>();
 
     @Transient
@@ -64,6 +69,14 @@ public class Cart {
         this.updateTime = updateTime;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public List<CartItem> getItems() {
         return items;
     }
@@ -71,7 +71,7 @@ public class Product {
     @Column(columnDefinition = "TINYINT(1) DEFAULT 1 COMMENT '0-下架 1-上架'")
     private Boolean status = true;
 
-    @Column(name = "create_time", updatable = false, columnDefinition = "DATETIME DEFAULT CURRENT_TIMESTAMP")
+    @Column(name = "create_time", nullable = false, updatable = false, columnDefinition = "DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP")
     @Temporal(TemporalType.TIMESTAMP)
     private Date createTime;
 
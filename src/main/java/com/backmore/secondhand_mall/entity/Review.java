@@ -36,7 +36,7 @@ public class Review {
     @Column(name = "status", length = 20)
     private String status;
 
-    @Column(name = "create_time", updatable = false)
+    @Column(name = "create_time", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "update_time")
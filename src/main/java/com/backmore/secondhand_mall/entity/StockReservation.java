@@ -0,0 +1,50 @@
+package com.backmore.secondhand_mall.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单的库存预占记录
+ * 下单时库存已扣减，支付后转为CONFIRMED，取消或超时转为RELEASED并归还库存
+ */
+@Entity
+@Table(name = "stock_reservation")
+@Data
+@NoArgsConstructor
+public class StockReservation {
+
+    public static final String HELD = "HELD";
+    public static final String CONFIRMED = "CONFIRMED";
+    public static final String RELEASED = "RELEASED";
+
+    @Id
+    // 号段分配ID，预占记录可以批量插入
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "stock_reservation_id")
+    @TableGenerator(name = "stock_reservation_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "stock_reservation", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,40 @@
+package com.backmore.secondhand_mall.event;
+
+import com.backmore.secondhand_mall.service.OrderStateService;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单状态迁移事件，在迁移所在的事务中同步发布
+ * 需要在事务中参与（如库存释放）的监听器用@EventListener，只关心提交结果的用@TransactionalEventListener
+ */
+public class OrderStatusChangedEvent {
+
+    private final Long orderId;
+    private final OrderStateService.Transition transition;
+    private final String status;
+    private final LocalDateTime occurredAt;
+
+    public OrderStatusChangedEvent(Long orderId, OrderStateService.Transition transition, LocalDateTime occurredAt) {
+        this.orderId = orderId;
+        this.transition = transition;
+        this.status = transition.getTarget();
+        this.occurredAt = occurredAt;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public OrderStateService.Transition getTransition() {
+        return transition;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
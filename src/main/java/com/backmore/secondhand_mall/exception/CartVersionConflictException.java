@@ -0,0 +1,18 @@
+package com.backmore.secondhand_mall.exception;
+
+/**
+ * 购物车已被其他请求修改，客户端提交的版本号不是当前版本
+ */
+public class CartVersionConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public CartVersionConflictException(long expectedVersion, long currentVersion) {
+        super("购物车已被修改, 提交版本: " + expectedVersion + ", 当前版本: " + currentVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
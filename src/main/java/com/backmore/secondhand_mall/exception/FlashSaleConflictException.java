@@ -0,0 +1,18 @@
+package com.backmore.secondhand_mall.exception;
+
+/**
+ * 商品正在秒杀，普通下单和购物车结算不能扣减它的库存，只能通过秒杀入口购买
+ */
+public class FlashSaleConflictException extends RuntimeException {
+
+    private final Long productId;
+
+    public FlashSaleConflictException(Long productId) {
+        super("商品正在秒杀，请通过秒杀入口购买: " + productId);
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+}
@@ -0,0 +1,18 @@
+package com.backmore.secondhand_mall.exception;
+
+/**
+ * 库存不足，条件扣减未命中任何行时抛出
+ */
+public class InsufficientStockException extends RuntimeException {
+
+    private final Long productId;
+
+    public InsufficientStockException(Long productId) {
+        super("商品库存不足: " + productId);
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+}
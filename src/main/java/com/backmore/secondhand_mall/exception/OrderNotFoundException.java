@@ -0,0 +1,8 @@
+package com.backmore.secondhand_mall.exception;
+
+public class OrderNotFoundException extends RuntimeException {
+
+    public OrderNotFoundException(Long orderId) {
+        super("订单不存在: " + orderId);
+    }
+}
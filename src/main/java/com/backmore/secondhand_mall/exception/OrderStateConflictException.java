@@ -0,0 +1,11 @@
+package com.backmore.secondhand_mall.exception;
+
+/**
+ * 订单当前状态不允许执行该操作（已被其他请求改变或本就不满足条件）
+ */
+public class OrderStateConflictException extends RuntimeException {
+
+    public OrderStateConflictException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,9 @@ package com.backmore.secondhand_mall.repository;
 
 import com.backmore.secondhand_mall.entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -11,4 +14,9 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     CartItem findByCartIdAndProductId(Long id, Long productId);
     
     List<CartItem> findByCartId(Long cartId);
+
+    // 单条DELETE清空购物车，不逐条加载实体
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM CartItem c WHERE c.cartId = :cartId")
+    int deleteAllByCartIdInBulk(@Param("cartId") Long cartId);
 }
\ No newline at end of file
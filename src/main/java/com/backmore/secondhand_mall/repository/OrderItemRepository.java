@@ -4,6 +4,7 @@ import com.backmore.secondhand_mall.entity.OrderItem;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,6 +12,9 @@ public interface OrderItemRepository extends CrudRepository<OrderItem, Long> {
     
     List<OrderItem> findByOrderId(Long orderId);
     
+    // 一次查出多个订单的订单项，避免逐个订单加载
+    List<OrderItem> findByOrderIdIn(Collection<Long> orderIds);
+    
     void deleteByOrderId(Long orderId);
     
 }
\ No newline at end of file
@@ -2,10 +2,84 @@
 package com.backmore.secondhand_mall.repository;
 
 import com.backmore.secondhand_mall.entity.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUserId(Long userId);
+
+    // 分页查询用户订单，按创建时间倒序
+    @Query(value = "SELECT o FROM Order o WHERE o.userId = :userId ORDER BY o.createdAt DESC, o.id DESC",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.userId = :userId")
+    Page<Order> findPageByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // 按状态分页查询用户订单
+    @Query(value = "SELECT o FROM Order o WHERE o.userId = :userId AND o.status IN :statuses " +
+            "ORDER BY o.createdAt DESC, o.id DESC",
+            countQuery = "SELECT COUNT(o) FROM Order o WHERE o.userId = :userId AND o.status IN :statuses")
+    Page<Order> findPageByUserIdAndStatusIn(@Param("userId") Long userId,
+                                            @Param("statuses") Collection<String> statuses, Pageable pageable);
+
+    // 游标分页：用户订单第一页
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    Slice<Order> findByUserIdFirstSlice(@Param("userId") Long userId, Pageable pageable);
+
+    // 游标分页：从 (createdAt, id) 之后继续查询
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId " +
+            "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    Slice<Order> findByUserIdAfter(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id, Pageable pageable);
+
+    // 条件状态迁移：只有当前状态在from中时才更新，返回0表示订单不存在或状态不满足
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.updatedAt = :now WHERE o.id = :id AND o.status IN :from")
+    int transitionStatus(@Param("id") Long id, @Param("from") Collection<String> from,
+                         @Param("to") String to, @Param("now") LocalDateTime now);
+
+    // 只更新用户可编辑的收货地址和支付方式，参数为空则保留原值；不读旧实体，不会覆盖并发提交的状态
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Order o SET o.shippingAddress = COALESCE(:shippingAddress, o.shippingAddress), " +
+            "o.paymentMethod = COALESCE(:paymentMethod, o.paymentMethod), o.updatedAt = :now WHERE o.id = :id")
+    int updateEditableFields(@Param("id") Long id, @Param("shippingAddress") String shippingAddress,
+                             @Param("paymentMethod") String paymentMethod, @Param("now") LocalDateTime now);
+
+    // 支付时同时更新支付方式，paymentMethod为空则保留原值
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.updatedAt = :now, " +
+            "o.paymentMethod = COALESCE(:paymentMethod, o.paymentMethod) WHERE o.id = :id AND o.status IN :from")
+    int transitionStatusWithPayment(@Param("id") Long id, @Param("from") Collection<String> from,
+                                    @Param("to") String to, @Param("paymentMethod") String paymentMethod,
+                                    @Param("now") LocalDateTime now);
+
+    // 批量条件迁移的第一步：锁定仍处于from状态的订单，返回实际锁定的ID
+    @Query(value = "SELECT id FROM orders WHERE id IN (:ids) AND status IN (:from) FOR UPDATE", nativeQuery = true)
+    List<Long> lockIdsInStatus(@Param("ids") Collection<Long> ids, @Param("from") Collection<String> from);
+
+    // 批量条件迁移：ids应为已锁定的订单，状态条件保留作为兜底
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :to, o.updatedAt = :now WHERE o.id IN :ids AND o.status IN :from")
+    int transitionStatusIn(@Param("ids") Collection<Long> ids, @Param("from") Collection<String> from,
+                           @Param("to") String to, @Param("now") LocalDateTime now);
+
+    // 按ID顺序分批读取指定状态订单的ID和创建时间，用于重建超时时间轮
+    @Query("SELECT o.id AS id, o.createdAt AS createdAt FROM Order o " +
+            "WHERE o.status IN :statuses AND o.id > :afterId ORDER BY o.id")
+    List<OrderDeadline> findDeadlinesAfter(@Param("statuses") Collection<String> statuses,
+                                           @Param("afterId") Long afterId, Pageable pageable);
+
+    interface OrderDeadline {
+        Long getId();
+
+        LocalDateTime getCreatedAt();
+    }
 }
\ No newline at end of file
@@ -1,11 +1,19 @@
 package com.backmore.secondhand_mall.repository;
 
+import com.backmore.secondhand_mall.dto.ProductCardDTO;
+import com.backmore.secondhand_mall.dto.ProductIndexDocument;
 import com.backmore.secondhand_mall.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 @Repository
@@ -24,4 +32,58 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     // 根据分类和状态查询商品
     List<Product> findByCategoryIdAndStatus(Long categoryId, Boolean status);
+    
+    // 条件扣减库存并累加销量
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock - :quantity, p.sales = COALESCE(p.sales, 0) + :quantity " +
+            "WHERE p.id = :id AND p.stock >= :quantity")
+    int decrementStockAndAddSales(@Param("id") Long id, @Param("quantity") int quantity);
+    
+    // 归还库存
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock + :quantity WHERE p.id = :id")
+    int restoreStock(@Param("id") Long id, @Param("quantity") int quantity);
+    
+    // 累加销量
+    @Modifying
+    @Query("UPDATE Product p SET p.sales = COALESCE(p.sales, 0) + :quantity WHERE p.id = :id")
+    int addSales(@Param("id") Long id, @Param("quantity") int quantity);
+    
+    // 分页查询商品卡片（只查列表字段，不加载描述和图片列表）
+    @Query(value = "SELECT new com.backmore.secondhand_mall.dto.ProductCardDTO(" +
+            "p.id, p.name, p.price, p.mainImage, p.condition, p.status, p.views, p.sales, p.createTime, p.stock) FROM Product p",
+            countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductCardDTO> findAllCards(Pageable pageable);
+    
+    // 查询卖家的商品卡片
+    @Query("SELECT new com.backmore.secondhand_mall.dto.ProductCardDTO(" +
+            "p.id, p.name, p.price, p.mainImage, p.condition, p.status, p.views, p.sales, p.createTime, p.stock) " +
+            "FROM Product p WHERE p.sellerId = :sellerId")
+    List<ProductCardDTO> findCardsBySellerId(@Param("sellerId") Long sellerId);
+    
+    // 游标分页：第一页
+    @Query("SELECT new com.backmore.secondhand_mall.dto.ProductCardDTO(" +
+            "p.id, p.name, p.price, p.mainImage, p.condition, p.status, p.views, p.sales, p.createTime, p.stock) " +
+            "FROM Product p ORDER BY p.createTime DESC, p.id DESC")
+    Slice<ProductCardDTO> findCardsFirstSlice(Pageable pageable);
+    
+    // 游标分页：从 (createTime, id) 之后继续查询
+    @Query("SELECT new com.backmore.secondhand_mall.dto.ProductCardDTO(" +
+            "p.id, p.name, p.price, p.mainImage, p.condition, p.status, p.views, p.sales, p.createTime, p.stock) " +
+            "FROM Product p WHERE p.createTime < :createTime OR (p.createTime = :createTime AND p.id < :id) " +
+            "ORDER BY p.createTime DESC, p.id DESC")
+    Slice<ProductCardDTO> findCardsAfter(@Param("createTime") Date createTime, @Param("id") Long id, Pageable pageable);
+    
+    // 根据ID批量查询商品卡片
+    @Query("SELECT new com.backmore.secondhand_mall.dto.ProductCardDTO(" +
+            "p.id, p.name, p.price, p.mainImage, p.condition, p.status, p.views, p.sales, p.createTime, p.stock) " +
+            "FROM Product p WHERE p.id IN :ids")
+    List<ProductCardDTO> findCardsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // 按ID顺序分批读取索引字段，用于重建内存索引
+    @Query("SELECT new com.backmore.secondhand_mall.dto.ProductIndexDocument(" +
+            "p.id, p.name, p.brand, p.description, p.status, " +
+            "p.categoryId, p.condition, p.price, p.faceToFace, p.delivery) " +
+            "FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<ProductIndexDocument> findIndexDocumentsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
@@ -1,11 +1,18 @@
 package com.backmore.secondhand_mall.repository;
 
 import com.backmore.secondhand_mall.entity.Review;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface ReviewRepository extends JpaRepository<Review, Long> {
     // 根据商品ID查询评价列表
@@ -32,4 +39,25 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     
     // 检查用户是否已经评价过某商品
     boolean existsByUserIdAndProductId(Long userId, Long productId);
+    
+    // 加行锁读取评价（SELECT ... FOR UPDATE），并发修改同一评价时按顺序计算评分汇总的增量
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.id = :id")
+    Optional<Review> findByIdForUpdate(@Param("id") Long id);
+    
+    // 删除评价并返回删除的行数
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Review r WHERE r.id = :id")
+    int deleteReviewById(@Param("id") Long id);
+    
+    // 游标分页：商品评价第一页
+    @Query("SELECT r FROM Review r WHERE r.productId = :productId ORDER BY r.createdAt DESC, r.id DESC")
+    Slice<Review> findByProductIdFirstSlice(@Param("productId") Long productId, Pageable pageable);
+    
+    // 游标分页：从 (createdAt, id) 之后继续查询
+    @Query("SELECT r FROM Review r WHERE r.productId = :productId " +
+            "AND (r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    Slice<Review> findByProductIdAfter(@Param("productId") Long productId, @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.backmore.secondhand_mall.repository;
+
+import com.backmore.secondhand_mall.entity.StockReservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    List<StockReservation> findByOrderId(Long orderId);
+
+    List<StockReservation> findByOrderIdAndStatus(Long orderId, String status);
+
+    // 已过期但仍处于预占状态的记录
+    @Query("SELECT r FROM StockReservation r WHERE r.status = 'HELD' AND r.expiresAt < :now ORDER BY r.expiresAt")
+    List<StockReservation> findExpired(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // 条件状态迁移：只有HELD状态可以确认或释放，返回0表示已被其他线程处理
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :status, r.updatedAt = :now WHERE r.id = :id AND r.status = 'HELD'")
+    int transitionFromHeld(@Param("id") Long id, @Param("status") String status, @Param("now") LocalDateTime now);
+}
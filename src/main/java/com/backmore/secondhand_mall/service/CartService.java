@@ -1,8 +1,11 @@
 
 package com.backmore.secondhand_mall.service;
 
+import com.backmore.secondhand_mall.dto.CartPatchRequest;
+import com.backmore.secondhand_mall.dto.CartPatchResponse;
 import com.backmore.secondhand_mall.entity.Cart;
 import com.backmore.secondhand_mall.entity.CartItem;
+import com.backmore.secondhand_mall.entity.Order;
 import java.util.List;
 
 public interface CartService {
@@ -12,4 +15,14 @@ public interface CartService {
     Cart updateCartItemQuantity(Long cartItemId, Integer quantity);
     void removeProductFromCart(Long cartItemId);
     void clearCart(Long userId);
+
+    /**
+     * 按顺序执行一批增加/修改/移除操作，全部生效或全部不生效，只返回有变化的购物车项和合计
+     */
+    CartPatchResponse patchCart(Long userId, Long expectedVersion, List<CartPatchRequest.Operation> operations);
+
+    /**
+     * 购物车结算：按商品当前价格生成订单、扣减库存并清空购物车，全部在一个事务中完成
+     */
+    Order checkout(Long userId, String shippingAddress, String paymentMethod);
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.backmore.secondhand_mall.service;
+
+import com.backmore.secondhand_mall.entity.Cart;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 内存购物车存储
+ * 活跃购物车常驻内存，修改先写本地预写日志再改内存，由后台批量合并写回cart/cart_items
+ * 返回的Cart只包含购物车项本身，不含商品信息
+ */
+public interface CartStoreService {
+
+    /**
+     * 批量修改的结果：修改后的购物车、数量有变化的商品ID、被移除的购物车项ID
+     */
+    record PatchResult(Cart cart, Set<Long> changedProductIds, List<Long> removedItemIds) {
+    }
+
+    /**
+     * 获取用户购物车，用户还没有购物车时返回null
+     */
+    Cart getCart(Long userId);
+
+    /**
+     * 确保用户有购物车并返回
+     */
+    Cart getOrCreateCart(Long userId);
+
+    /**
+     * 在原数量上增加，结果不大于0时移除该商品
+     */
+    Cart addQuantity(Long userId, Long productId, int delta);
+
+    /**
+     * 设置商品数量，不大于0时移除该商品
+     */
+    Cart setQuantity(Long userId, Long productId, int quantity);
+
+    /**
+     * 原子地把多个商品设置为给定数量（不大于0即移除），整批写一条日志
+     * expectedVersion不为空且与当前版本不一致时抛出CartVersionConflictException，不做任何修改
+     */
+    PatchResult patch(Long userId, Long expectedVersion, Map<Long, Integer> quantities);
+
+    void clear(Long userId);
+
+    /**
+     * 按购物车项ID查找所属用户和商品，返回{userId, productId}，不存在返回null
+     */
+    long[] findItem(Long cartItemId);
+
+    /**
+     * 写回全部未落库的修改，返回写回的购物车数
+     */
+    int flushAll();
+}
@@ -0,0 +1,37 @@
+package com.backmore.secondhand_mall.service;
+
+import java.util.Map;
+
+public interface FlashSaleService {
+
+    /**
+     * 开启商品秒杀：按当前库存预载内存分片令牌
+     */
+    Map<String, Object> enable(Long productId);
+
+    /**
+     * 关闭秒杀：拒绝新请求，等待队列写完后与数据库库存对账
+     */
+    Map<String, Object> disable(Long productId);
+
+    /**
+     * 抢购：只在内存中扣令牌，成功后进入写入队列并返回排队凭证
+     * 未开启、已售罄、重复购买或队列已满时抛出IllegalStateException
+     */
+    String tryBuy(Long productId, Long userId, int quantity, String shippingAddress, String paymentMethod);
+
+    /**
+     * 查询排队凭证的处理结果，凭证不存在或已过期时返回null
+     */
+    Map<String, Object> getTicket(String ticketId);
+
+    /**
+     * 秒杀状态（剩余令牌、已受理、已落库等）
+     */
+    Map<String, Object> status(Long productId);
+
+    /**
+     * 商品是否处于秒杀中（含关闭后尚未写完的已受理订单），此期间普通下单和结算应拒绝该商品
+     */
+    boolean isEnabled(Long productId);
+}
@@ -0,0 +1,22 @@
+package com.backmore.secondhand_mall.service;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.function.Supplier;
+
+/**
+ * 基于Idempotency-Key请求头的幂等执行
+ */
+public interface IdempotencyService {
+
+    String HEADER = "Idempotency-Key";
+
+    /**
+     * 同一scope下同一个键只执行一次action，重试时返回首次的响应（5xx响应不保存，允许重试）
+     * 并发的相同请求等待同一次执行的结果；key为空时直接执行
+     *
+     * @param scope 区分用户和接口，如 "alice:order:create"
+     * @param request 用于校验同一个键是否被用于不同的请求，可为null
+     */
+    ResponseEntity<?> execute(String key, String scope, Object request, Supplier<ResponseEntity<?>> action);
+}
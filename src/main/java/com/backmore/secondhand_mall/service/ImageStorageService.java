@@ -0,0 +1,26 @@
+package com.backmore.secondhand_mall.service;
+
+import java.util.List;
+
+public interface ImageStorageService {
+
+    /**
+     * 按内容(SHA-256)保存图片，相同内容只保存一份，返回可访问的URL
+     */
+    String store(byte[] data, String contentType);
+
+    /**
+     * 如果是Base64 Data URL则落盘并返回URL，否则原样返回
+     */
+    String storeDataUrl(String image);
+
+    /**
+     * 批量处理图片列表
+     */
+    List<String> storeAll(List<String> images);
+
+    /**
+     * 处理JSON数组或单张图片形式的图片字段
+     */
+    String storeImagesField(String images);
+}
@@ -0,0 +1,42 @@
+package com.backmore.secondhand_mall.service;
+
+import com.backmore.secondhand_mall.entity.OrderItem;
+import com.backmore.secondhand_mall.entity.StockReservation;
+
+import java.util.List;
+
+public interface InventoryService {
+
+    /**
+     * 直接售出：条件扣减库存并累加销量，库存不足抛出InsufficientStockException
+     */
+    void sell(Long productId, int quantity);
+
+    /**
+     * 为订单预占库存，库存立即扣减，任一商品不足时抛出InsufficientStockException
+     * 需在下单事务中调用，失败时整单回滚
+     */
+    List<StockReservation> reserve(Long orderId, List<OrderItem> items);
+
+    /**
+     * 与reserve相同，但库存不足时回滚本次扣减并返回false，不抛异常
+     * 供批量写入在同一事务中逐单处理，单个订单失败不影响整批提交
+     */
+    boolean tryReserve(Long orderId, List<OrderItem> items);
+
+    /**
+     * 支付成功后确认预占并累加销量
+     * 预占已被释放（取消或超时）时返回false
+     */
+    boolean confirm(Long orderId);
+
+    /**
+     * 释放订单仍在预占中的库存，返回释放的记录数
+     */
+    int release(Long orderId);
+
+    /**
+     * 释放已过期的预占并取消对应的待付款订单，返回释放的记录数
+     */
+    int releaseExpired();
+}
@@ -0,0 +1,24 @@
+package com.backmore.secondhand_mall.service;
+
+import com.backmore.secondhand_mall.entity.Order;
+import com.backmore.secondhand_mall.entity.OrderItem;
+
+import java.util.List;
+
+/**
+ * 冷订单归档
+ */
+public interface OrderArchiveService {
+
+    /**
+     * 把超过保留期的已完成、已取消订单分批移入归档表，返回本次归档的订单数
+     */
+    int archive();
+
+    /**
+     * 从归档表读取订单，不存在返回null
+     */
+    Order findArchivedOrder(Long orderId, boolean includeItems);
+
+    List<OrderItem> findArchivedItems(Long orderId);
+}
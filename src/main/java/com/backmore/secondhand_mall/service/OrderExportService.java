@@ -0,0 +1,24 @@
+package com.backmore.secondhand_mall.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderExportService {
+
+    enum Format {
+        NDJSON, CSV
+    }
+
+    /**
+     * 按条件流式导出订单，逐行写出，内存占用与数据量无关
+     * @param from 创建时间下限（含），为空不限
+     * @param to 创建时间上限（不含），为空不限
+     * @param statuses 状态筛选，为空不限
+     * @param includeArchived 是否包含已移入归档表的历史订单
+     * @return 导出的行数
+     */
+    long export(Format format, LocalDateTime from, LocalDateTime to, List<String> statuses,
+                boolean includeArchived, OutputStream out) throws IOException;
+}
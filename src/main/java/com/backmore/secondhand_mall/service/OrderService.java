@@ -1,16 +1,24 @@
 
 package com.backmore.secondhand_mall.service;
 
+import com.backmore.secondhand_mall.dto.CursorPage;
 import com.backmore.secondhand_mall.entity.Order;
 import com.backmore.secondhand_mall.entity.OrderItem;
+import org.springframework.data.domain.Page;
+
 import java.util.List;
 
 public interface OrderService {
     Order createOrder(Order order);
+    // 创建订单，库存不足时返回null而不是抛出异常
+    Order createOrderIfInStock(Order order);
     Order getOrderById(Long id);
     Order getOrderByIdWithItems(Long id, boolean includeItems);
     List<Order> getOrdersByUserId(Long userId);
     List<Order> getOrdersByUserIdWithItems(Long userId, boolean includeItems);
+    CursorPage<Order> getOrdersByUserIdCursor(Long userId, String cursor, int size, boolean includeItems);
+    // 分页查询订单历史，可按状态筛选，订单项用一条IN查询批量加载
+    Page<Order> getOrderHistory(Long userId, List<String> statuses, int page, int size, boolean includeItems);
     List<OrderItem> getOrderItems(Long orderId);
     List<Order> getAllOrders();
     Order updateOrder(Order order);
@@ -0,0 +1,64 @@
+package com.backmore.secondhand_mall.service;
+
+import com.backmore.secondhand_mall.entity.Order;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 订单状态机
+ * 每次迁移都是一条带前置状态条件的UPDATE，并发的支付和取消只会有一个成功
+ */
+public interface OrderStateService {
+
+    enum Transition {
+        // 支付后直接完成，跳过待发货和已发货
+        PAY("COMPLETED", "订单不是待付款状态", "PENDING", "待付款"),
+        CANCEL("CANCELED", "只有待付款订单可以取消", "PENDING", "待付款"),
+        EXPIRE("CANCELED", "订单不是待付款状态", "PENDING", "待付款"),
+        CONFIRM("COMPLETED", "只有已发货或待发货订单可以确认收货", "SHIPPED", "已发货", "PAID", "待发货");
+
+        private final String target;
+        private final String conflictMessage;
+        private final List<String> sources;
+
+        Transition(String target, String conflictMessage, String... sources) {
+            this.target = target;
+            this.conflictMessage = conflictMessage;
+            this.sources = List.of(sources);
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        public List<String> getSources() {
+            return sources;
+        }
+
+        public String getConflictMessage() {
+            return conflictMessage;
+        }
+    }
+
+    /**
+     * 执行状态迁移并返回迁移后的订单
+     * 订单不存在抛出OrderNotFoundException，状态不满足抛出OrderStateConflictException
+     */
+    Order transition(Long orderId, Transition transition);
+
+    /**
+     * 支付订单，paymentMethod不为空时一并更新支付方式
+     */
+    Order pay(Long orderId, String paymentMethod);
+
+    /**
+     * 尝试迁移，不满足条件时返回false，不抛异常也不查询订单
+     */
+    boolean tryTransition(Long orderId, Transition transition);
+
+    /**
+     * 批量尝试迁移，先锁定满足条件的订单再一次性更新，返回实际迁移成功的订单ID
+     */
+    List<Long> tryTransitionAll(Collection<Long> orderIds, Transition transition);
+}
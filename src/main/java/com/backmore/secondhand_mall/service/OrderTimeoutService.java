@@ -0,0 +1,24 @@
+package com.backmore.secondhand_mall.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * 未支付订单超时取消
+ */
+public interface OrderTimeoutService {
+
+    /**
+     * 登记订单的支付截止时间，在当前事务提交后生效
+     */
+    void register(Long orderId, LocalDateTime createdAt);
+
+    /**
+     * 从数据库重新加载全部待付款订单的截止时间，返回登记数量
+     */
+    int rebuild();
+
+    /**
+     * 尚未到期的订单数
+     */
+    int pendingCount();
+}
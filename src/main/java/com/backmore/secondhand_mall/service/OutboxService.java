@@ -0,0 +1,22 @@
+package com.backmore.secondhand_mall.service;
+
+/**
+ * 事务发件箱
+ */
+public interface OutboxService {
+
+    /**
+     * 在当前事务中追加事件，必须在事务内调用
+     */
+    void append(String eventType, Long aggregateId, Object payload);
+
+    /**
+     * 分批读取到期事件并分发给订阅者，返回处理成功的事件数
+     */
+    int relay();
+
+    /**
+     * 清理保留期之前已处理的事件，返回删除数量
+     */
+    int purgeProcessed();
+}
@@ -0,0 +1,22 @@
+package com.backmore.secondhand_mall.service;
+
+import com.backmore.secondhand_mall.entity.OutboxEvent;
+
+/**
+ * 发件箱事件的进程内订阅者
+ * 投递至少一次：处理和消费记录在同一事务中提交，同一事件对同一订阅者只会成功处理一次
+ */
+public interface OutboxSubscriber {
+
+    /**
+     * 订阅者名称，作为消费记录的一部分，上线后不要修改
+     */
+    String name();
+
+    boolean supports(String eventType);
+
+    /**
+     * 在独立事务中执行，抛出异常时回滚并按退避时间重试
+     */
+    void handle(OutboxEvent event);
+}
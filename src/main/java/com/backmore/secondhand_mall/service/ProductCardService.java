@@ -0,0 +1,19 @@
+package com.backmore.secondhand_mall.service;
+
+import com.backmore.secondhand_mall.dto.ProductCardDTO;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 商品卡片缓存，供列表和购物车等批量读取场景共用
+ */
+public interface ProductCardService {
+
+    /**
+     * 批量获取商品卡片，未命中的商品用一次IN查询加载；不存在的商品不在结果中
+     */
+    Map<Long, ProductCardDTO> getCards(Collection<Long> productIds);
+
+    void evict(Long productId);
+}
@@ -0,0 +1,27 @@
+package com.backmore.secondhand_mall.service;
+
+import java.util.Map;
+import java.util.Optional;
+
+public interface ProductDetailService {
+
+    /**
+     * 获取商品详情（含卖家名称和头像），优先读缓存
+     */
+    Optional<Map<String, Object>> getDetail(Long productId);
+
+    /**
+     * 商品变更后使详情缓存和卡片缓存失效
+     */
+    void evict(Long productId);
+
+    /**
+     * 卖家名称或头像变更后使其全部商品的详情缓存失效
+     */
+    void evictBySeller(Long sellerId);
+
+    /**
+     * 缓存命中、未命中、淘汰等统计
+     */
+    Map<String, Object> stats();
+}
@@ -0,0 +1,32 @@
+package com.backmore.secondhand_mall.service;
+
+import com.backmore.secondhand_mall.entity.Product;
+import com.backmore.secondhand_mall.util.ProductFacetIndex;
+
+public interface ProductFacetService {
+
+    /**
+     * 新增或更新商品的分面位图
+     */
+    void index(Product product);
+
+    /**
+     * 从分面位图中移除商品
+     */
+    void remove(Long productId);
+
+    /**
+     * 按组合条件筛选商品，同时返回各维度的分面计数
+     */
+    ProductFacetIndex.Result browse(ProductFacetIndex.Query query, int offset, int limit);
+
+    /**
+     * 从数据库全量重建分面位图
+     */
+    void rebuild();
+
+    /**
+     * 位图是否已完成首次构建
+     */
+    boolean isReady();
+}
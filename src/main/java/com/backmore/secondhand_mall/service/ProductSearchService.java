@@ -0,0 +1,32 @@
+package com.backmore.secondhand_mall.service;
+
+import com.backmore.secondhand_mall.entity.Product;
+import com.backmore.secondhand_mall.util.Bm25Index;
+
+public interface ProductSearchService {
+
+    /**
+     * 新增或更新商品索引，下架商品会从索引中移除
+     */
+    void index(Product product);
+
+    /**
+     * 从索引中移除商品
+     */
+    void remove(Long productId);
+
+    /**
+     * 按关键词检索商品，结果按BM25得分排序
+     */
+    Bm25Index.SearchHits search(String keyword, int offset, int limit);
+
+    /**
+     * 从数据库全量重建索引
+     */
+    void rebuild();
+
+    /**
+     * 索引是否已完成首次构建
+     */
+    boolean isReady();
+}
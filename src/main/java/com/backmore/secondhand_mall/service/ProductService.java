@@ -1,5 +1,7 @@
 package com.backmore.secondhand_mall.service;
 
+import com.backmore.secondhand_mall.dto.CursorPage;
+import com.backmore.secondhand_mall.dto.ProductCardDTO;
 import com.backmore.secondhand_mall.dto.ProductRequest;
 import com.backmore.secondhand_mall.entity.Product;
 import org.springframework.data.domain.Page;
@@ -27,6 +29,12 @@ public interface ProductService {
     // 分页查询所有商品
     Page<Product> findAll(Pageable pageable);
     
+    // 分页查询商品卡片（列表页使用）
+    Page<ProductCardDTO> findAllCards(Pageable pageable);
+    
+    // 游标分页查询商品卡片（按发布时间倒序）
+    CursorPage<ProductCardDTO> findCardsByCursor(String cursor, int size);
+    
     // 更新商品
     Product update(Product product);
     
@@ -36,6 +44,12 @@ public interface ProductService {
     // 分页查询卖家商品
     Page<Product> findBySellerId(Long sellerId, Pageable pageable);
     
+    // 查询卖家商品卡片（列表页使用）
+    List<ProductCardDTO> findCardsBySellerId(Long sellerId);
+    
+    // 根据ID列表查询商品卡片，保持传入顺序
+    List<ProductCardDTO> findCardsByIds(List<Long> ids);
+    
     // 更新商品状态（上架/下架）
     Product updateStatus(Long id, Boolean status);
     
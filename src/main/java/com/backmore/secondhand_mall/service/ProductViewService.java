@@ -0,0 +1,14 @@
+package com.backmore.secondhand_mall.service;
+
+public interface ProductViewService {
+
+    /**
+     * 记录一次浏览，只写内存缓冲，由定时任务批量落库
+     */
+    void recordView(Long productId);
+
+    /**
+     * 将缓冲中的浏览量批量写入数据库，返回本次写入的商品数
+     */
+    int flush();
+}
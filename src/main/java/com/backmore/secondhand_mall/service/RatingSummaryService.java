@@ -0,0 +1,27 @@
+package com.backmore.secondhand_mall.service;
+
+import com.backmore.secondhand_mall.dto.RatingDistributionDTO;
+
+/**
+ * 商品评分汇总：评价数、评分总和与1-5星分布，只统计审核通过的评价
+ */
+public interface RatingSummaryService {
+
+    /**
+     * 评价变化时在同一事务内调用：旧评价计入汇总时扣除旧评分，新评价计入汇总时加上新评分
+     * 不计入汇总的一侧传null
+     */
+    void onReviewChanged(Long productId, Integer oldRating, Integer newRating);
+
+    /**
+     * 读取商品的评分汇总，没有评价时各项为0
+     */
+    RatingDistributionDTO getSummary(Long productId);
+
+    /**
+     * 在后台线程按商品ID分批从评价表重新计算全部汇总，已有任务在运行时返回false
+     */
+    boolean startRebuild();
+
+    boolean isRebuildRunning();
+}
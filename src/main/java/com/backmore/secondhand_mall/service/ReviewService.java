@@ -1,5 +1,6 @@
 package com.backmore.secondhand_mall.service;
 
+import com.backmore.secondhand_mall.dto.CursorPage;
 import com.backmore.secondhand_mall.entity.Review;
 import java.util.List;
 
@@ -7,6 +8,7 @@ public interface ReviewService {
     Review createReview(Review review);
     Review getReviewById(Long id);
     List<Review> getReviewsByProductId(Long productId);
+    CursorPage<Review> getReviewsByProductIdCursor(Long productId, String cursor, int size);
     List<Review> getReviewsByUserId(Long userId);
     List<Review> getReviewsByProductIdAndRating(Long productId, Integer rating);
     Double getAverageRatingByProductId(Long productId);
@@ -0,0 +1,29 @@
+package com.backmore.secondhand_mall.service;
+
+import com.backmore.secondhand_mall.dto.SellerStatsResponse;
+
+import java.time.LocalDate;
+
+/**
+ * 卖家销售汇总
+ */
+public interface SellerStatsService {
+
+    /**
+     * 把一个已完成订单计入每日汇总，重复调用不会重复计入，返回是否本次计入
+     */
+    boolean applyOrder(Long orderId);
+
+    /**
+     * 读取卖家在日期范围内（含两端）的汇总数据
+     */
+    SellerStatsResponse getStats(Long sellerId, LocalDate from, LocalDate to);
+
+    /**
+     * 在后台线程回填历史已完成订单，从上次中断的位置继续；reset为true时从头扫描
+     * 已有任务在运行时返回false
+     */
+    boolean startBackfill(boolean reset);
+
+    boolean isBackfillRunning();
+}
@@ -1,163 +1,294 @@
 package com.backmore.secondhand_mall.service.impl;
 
+import com.backmore.secondhand_mall.dto.CartPatchRequest;
+import com.backmore.secondhand_mall.dto.CartPatchResponse;
+import com.backmore.secondhand_mall.dto.ProductCardDTO;
 import com.backmore.secondhand_mall.entity.Cart;
 import com.backmore.secondhand_mall.entity.CartItem;
+import com.backmore.secondhand_mall.entity.Order;
+import com.backmore.secondhand_mall.entity.OrderItem;
 import com.backmore.secondhand_mall.entity.Product;
-import com.backmore.secondhand_mall.repository.CartItemRepository;
-import com.backmore.secondhand_mall.repository.CartRepository;
+import com.backmore.secondhand_mall.exception.CartVersionConflictException;
 import com.backmore.secondhand_mall.repository.ProductRepository;
 import com.backmore.secondhand_mall.service.CartService;
+import com.backmore.secondhand_mall.service.CartStoreService;
+import com.backmore.secondhand_mall.service.OrderService;
+import com.backmore.secondhand_mall.service.ProductCardService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.time.LocalDateTime;
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 @Service
 public class CartServiceImpl implements CartService {
 
-    @Autowired
-    private CartRepository cartRepository;
+    // 单次批量修改的操作数上限
+    private static final int MAX_PATCH_OPERATIONS = 200;
 
     @Autowired
-    private CartItemRepository cartItemRepository;
+    private CartStoreService cartStoreService;
     
     @Autowired
     private ProductRepository productRepository;
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private ProductCardService productCardService;
 
     @Override
-    @Transactional(readOnly = true)
     public Cart getCartByUserId(Long userId) {
-        Cart cart = cartRepository.findByUserId(userId);
+        Cart cart = cartStoreService.getCart(userId);
         if (cart == null) {
             return null;
         }
+        return hydrate(cart);
+    }
+    
+    /**
+     * 为购物车项补充商品信息：商品卡片批量读取共享缓存，未命中的合并成一次IN查询
+     */
+    private Cart hydrate(Cart cart) {
+        List<CartItem> cartItems = cart.getItems();
         
-        // 获取购物车项
-        List<CartItem> cartItems = cartItemRepository.findByCartId(cart.getId());
-        
-        // 获取所有相关的商品信息
-        Map<Long, Product> productMap = new HashMap<>();
-        for (CartItem item : cartItems) {
-            Product product = productRepository.findById(item.getProductId()).orElse(null);
-            if (product != null) {
-                productMap.put(product.getId(), product);
-            }
-        }
+        List<Long> productIds = cartItems.stream().map(CartItem::getProductId).distinct().toList();
+        Map<Long, ProductCardDTO> cards = productCardService.getCards(productIds);
         
         // 为CartItem添加商品信息的传输属性
         for (CartItem item : cartItems) {
-            Product product = productMap.get(item.getProductId());
-            if (product != null) {
-                item.setProductName(product.getName());
-                item.setProductPrice(product.getPrice());
-                item.setProductImage(product.getMainImage());
-                item.setProductStock(product.getStock());
+            ProductCardDTO card = cards.get(item.getProductId());
+            if (card != null) {
+                item.setProductName(card.getName());
+                item.setProductPrice(card.getPrice());
+                item.setProductImage(card.getMainImage());
+                item.setProductStock(card.getStock());
             }
         }
         
-        // 设置购物车项
-        cart.setItems(cartItems);
-        
         return cart;
     }
 
     @Override
     public Cart createCart(Cart cart) {
-        return cartRepository.save(cart);
+        // 购物车由内存存储统一分配ID和写回，每个用户只有一个购物车
+        return hydrate(cartStoreService.getOrCreateCart(cart.getUserId()));
     }
 
     @Override
-    @Transactional
     public Cart addProductToCart(Long userId, Long productId, Integer quantity) {
-        Cart cart = cartRepository.findByUserId(userId);
-        if (cart == null) {
-            cart = new Cart();
-            cart.setUserId(userId);
-            cart.setCreateTime(LocalDateTime.now());
-            cart.setUpdateTime(LocalDateTime.now());
-            cart = cartRepository.save(cart);
+        Cart cart = cartStoreService.addQuantity(userId, productId, quantity);
+        // 返回完整的购物车信息
+        return cart != null ? hydrate(cart) : null;
+    }
+
+    @Override
+    public Cart updateCartItemQuantity(Long cartItemId, Integer quantity) {
+        long[] owner = cartStoreService.findItem(cartItemId);
+        if (owner == null) {
+            return null;
         }
+        Cart cart = cartStoreService.setQuantity(owner[0], owner[1], quantity);
+        // 返回完整的购物车信息
+        return cart != null ? hydrate(cart) : null;
+    }
 
-        CartItem existingItem = cartItemRepository.findByCartIdAndProductId(cart.getId(), productId);
-        if (existingItem != null) {
-            existingItem.setQuantity(existingItem.getQuantity() + quantity);
-            existingItem.setUpdateTime(LocalDateTime.now());
-            cartItemRepository.save(existingItem);
-        } else {
-            CartItem item = new CartItem();
-            item.setCartId(cart.getId());
-            item.setProductId(productId);
-            item.setQuantity(quantity);
-            item.setCreateTime(LocalDateTime.now());
-            item.setUpdateTime(LocalDateTime.now());
-            cartItemRepository.save(item);
+    @Override
+    public void removeProductFromCart(Long cartItemId) {
+        long[] owner = cartStoreService.findItem(cartItemId);
+        if (owner != null) {
+            cartStoreService.setQuantity(owner[0], owner[1], 0);
         }
+    }
 
-        // 返回完整的购物车信息
-        return getCartByUserId(userId);
+    @Override
+    public void clearCart(Long userId) {
+        cartStoreService.clear(userId);
     }
 
     @Override
-    @Transactional
-    public Cart updateCartItemQuantity(Long cartItemId, Integer quantity) {
-        CartItem item = cartItemRepository.findById(cartItemId).orElse(null);
-        if (item != null) {
-            item.setQuantity(quantity);
-            item.setUpdateTime(LocalDateTime.now());
-            cartItemRepository.save(item);
-            
-            // 查找对应的购物车
-            Cart cart = cartRepository.findById(item.getCartId()).orElse(null);
-            if (cart != null) {
-                // 返回完整的购物车信息
-                return getCartByUserId(cart.getUserId());
+    public CartPatchResponse patchCart(Long userId, Long expectedVersion, List<CartPatchRequest.Operation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("操作列表不能为空");
+        }
+        if (operations.size() > MAX_PATCH_OPERATIONS) {
+            throw new IllegalArgumentException("单次最多" + MAX_PATCH_OPERATIONS + "个操作");
+        }
+        
+        CartStoreService.PatchResult result;
+        while (true) {
+            // 先在当前数量上按顺序折算出每个商品的目标数量，校验全部通过后再按折算时的版本一次性提交
+            Cart current = cartStoreService.getCart(userId);
+            long currentVersion = current != null ? current.getVersion() : 0;
+            if (expectedVersion != null && expectedVersion != currentVersion) {
+                throw new CartVersionConflictException(expectedVersion, currentVersion);
+            }
+            Map<Long, Integer> targets = resolveQuantities(current, operations);
+            try {
+                result = cartStoreService.patch(userId, currentVersion, targets);
+                break;
+            } catch (CartVersionConflictException e) {
+                // 折算期间被其他请求修改：客户端指定了版本号时直接返回冲突，否则按最新数量重新折算
+                if (expectedVersion != null) {
+                    throw e;
+                }
+            }
+        }
+        
+        CartPatchResponse response = new CartPatchResponse();
+        response.setRemovedItemIds(result.removedItemIds());
+        Cart cart = result.cart();
+        if (cart == null) {
+            response.setVersion(0);
+            response.setChangedItems(List.of());
+            response.setTotalPrice(BigDecimal.ZERO);
+            return response;
+        }
+        
+        hydrate(cart);
+        List<CartItem> changedItems = new ArrayList<>();
+        int totalQuantity = 0;
+        BigDecimal totalPrice = BigDecimal.ZERO;
+        for (CartItem item : cart.getItems()) {
+            if (result.changedProductIds().contains(item.getProductId())) {
+                changedItems.add(item);
+            }
+            totalQuantity += item.getQuantity();
+            if (item.getProductPrice() != null) {
+                totalPrice = totalPrice.add(BigDecimal.valueOf(item.getProductPrice()).multiply(BigDecimal.valueOf(item.getQuantity())));
             }
         }
-        return null;
+        response.setCartId(cart.getId());
+        response.setVersion(cart.getVersion());
+        response.setChangedItems(changedItems);
+        response.setItemCount(cart.getItems().size());
+        response.setTotalQuantity(totalQuantity);
+        response.setTotalPrice(totalPrice);
+        return response;
     }
 
-    @Override
-    @Transactional
-    public void removeProductFromCart(Long cartItemId) {
-        cartItemRepository.deleteById(cartItemId);
+    private Map<Long, Integer> resolveQuantities(Cart current, List<CartPatchRequest.Operation> operations) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        if (current != null) {
+            for (CartItem item : current.getItems()) {
+                quantities.put(item.getProductId(), item.getQuantity());
+            }
+        }
+        Map<Long, Integer> targets = new LinkedHashMap<>();
+        for (CartPatchRequest.Operation operation : operations) {
+            Long productId = operation.getProductId();
+            Integer quantity = operation.getQuantity();
+            if (productId == null || operation.getOp() == null) {
+                throw new IllegalArgumentException("操作和商品ID不能为空");
+            }
+            int base = targets.containsKey(productId) ? targets.get(productId) : quantities.getOrDefault(productId, 0);
+            switch (operation.getOp()) {
+                case "add" -> {
+                    if (quantity == null || quantity <= 0) {
+                        throw new IllegalArgumentException("增加数量必须大于0: " + productId);
+                    }
+                    targets.put(productId, base + quantity);
+                }
+                case "update" -> {
+                    if (quantity == null || quantity < 0) {
+                        throw new IllegalArgumentException("商品数量不能为负: " + productId);
+                    }
+                    targets.put(productId, quantity);
+                }
+                case "remove" -> targets.put(productId, 0);
+                default -> throw new IllegalArgumentException("不支持的操作: " + operation.getOp());
+            }
+        }
+        return targets;
     }
 
     @Override
     @Transactional
-    public void clearCart(Long userId) {
-        try {
-            System.out.println("开始清空用户ID为 " + userId + " 的购物车");
+    public Order checkout(Long userId, String shippingAddress, String paymentMethod) {
+        Cart cart = cartStoreService.getCart(userId);
+        List<CartItem> cartItems = cart != null ? cart.getItems() : List.of();
+        if (cartItems.isEmpty()) {
+            throw new IllegalArgumentException("购物车为空");
+        }
+        
+        // 一次查询取回全部商品，价格以服务端当前数据为准，不信任客户端
+        List<Long> productIds = cartItems.stream().map(CartItem::getProductId).distinct().toList();
+        Map<Long, Product> productMap = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            productMap.put(product.getId(), product);
+        }
+        
+        List<OrderItem> orderItems = new ArrayList<>(cartItems.size());
+        BigDecimal totalPrice = BigDecimal.ZERO;
+        for (CartItem cartItem : cartItems) {
+            Product product = productMap.get(cartItem.getProductId());
+            if (product == null || !Boolean.TRUE.equals(product.getStatus())) {
+                throw new IllegalArgumentException("商品已下架或不存在: " + cartItem.getProductId());
+            }
+            if (userId.equals(product.getSellerId())) {
+                throw new IllegalArgumentException("不能购买自己发布的商品: " + product.getId());
+            }
+            if (cartItem.getQuantity() == null || cartItem.getQuantity() <= 0) {
+                throw new IllegalArgumentException("购物车商品数量无效: " + product.getId());
+            }
             
-            Cart cart = cartRepository.findByUserId(userId);
-            if (cart != null) {
-                Long cartId = cart.getId();
-                System.out.println("找到购物车ID: " + cartId);
-                
-                // 先获取购物车项，记录要删除的数量
-                List<CartItem> items = cartItemRepository.findByCartId(cartId);
-                System.out.println("购物车中共有 " + items.size() + " 件商品");
-                
-                // 使用批量删除而不是自定义方法
-                if (!items.isEmpty()) {
-                    for (CartItem item : items) {
-                        System.out.println("删除购物车项: " + item.getId());
-                        cartItemRepository.deleteById(item.getId());
-                    }
-                    System.out.println("成功删除所有购物车项");
-                } else {
-                    System.out.println("购物车为空，无需删除");
+            OrderItem orderItem = new OrderItem();
+            orderItem.setProductId(product.getId());
+            orderItem.setQuantity(cartItem.getQuantity());
+            orderItem.setPrice(BigDecimal.valueOf(product.getPrice()));
+            orderItem.setTotalPrice(orderItem.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
+            totalPrice = totalPrice.add(orderItem.getTotalPrice());
+            orderItems.add(orderItem);
+        }
+        
+        Order order = new Order();
+        order.setUserId(userId);
+        order.setShippingAddress(shippingAddress);
+        order.setPaymentMethod(paymentMethod);
+        order.setTotalPrice(totalPrice);
+        order.setItems(orderItems);
+        
+        // 加入当前事务：订单和订单项批量插入，库存一个批次条件扣减，任一商品不足整单回滚
+        Order createdOrder = orderService.createOrder(order);
+        
+        // 购物车在内存中，订单提交成功后再移除已下单的购物车项，订单回滚时购物车保持不变
+        long checkedOutVersion = cart.getVersion();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeCheckedOut(userId, checkedOutVersion, cartItems);
                 }
-            } else {
-                System.out.println("未找到用户ID为 " + userId + " 的购物车");
+            });
+        } else {
+            removeCheckedOut(userId, checkedOutVersion, cartItems);
+        }
+        return createdOrder;
+    }
+
+    /**
+     * 只移除结算时读到的购物车项，结算期间新加入或修改的商品保留
+     * 购物车版本未变时按版本整批移除；版本已变时在当前数量上减去已下单数量
+     */
+    private void removeCheckedOut(Long userId, long checkedOutVersion, List<CartItem> checkedOut) {
+        Map<Long, Integer> removals = new LinkedHashMap<>();
+        for (CartItem item : checkedOut) {
+            removals.put(item.getProductId(), 0);
+        }
+        try {
+            cartStoreService.patch(userId, checkedOutVersion, removals);
+        } catch (CartVersionConflictException e) {
+            for (CartItem item : checkedOut) {
+                cartStoreService.addQuantity(userId, item.getProductId(), -item.getQuantity());
             }
-        } catch (Exception e) {
-            System.err.println("清空购物车时发生异常: " + e.getMessage());
-            e.printStackTrace();
-            throw e; // 重新抛出异常，确保事务回滚
         }
     }
 }
\ No newline at end of file
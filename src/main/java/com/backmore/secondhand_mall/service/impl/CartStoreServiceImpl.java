@@ -0,0 +1,749 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.entity.Cart;
+import com.backmore.secondhand_mall.entity.CartItem;
+import com.backmore.secondhand_mall.exception.CartVersionConflictException;
+import com.backmore.secondhand_mall.repository.CartItemRepository;
+import com.backmore.secondhand_mall.service.CartStoreService;
+import com.backmore.secondhand_mall.util.WriteAheadLog;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存购物车存储（写回模式）
+ * 修改流程：在购物车对象锁内先追加预写日志，再改内存并标记为脏；后台定时把脏购物车按批写回数据库，
+ * 同一购物车两次写回之间的多次修改合并为一次。写回前切换日志段，全部写回成功后删除旧段，
+ * 进程崩溃后启动时重放剩余日志段恢复未落库的修改。
+ * 日志记录的是修改后的数量而不是增量，重放多少次结果都一样。
+ * 购物车和购物车项的ID在内存中按号段预分配，新加入的商品立即有ID可用。
+ * 多实例部署时同一用户的请求应路由到同一实例（按用户粘性路由）。写回时锁定cart行并比较版本号，
+ * 数据库中的版本不是本实例加载或上次写回的版本，说明其他实例写过该购物车，此时不覆盖数据库，
+ * 而是重新加载数据库中的最新状态，把本地上次写回之后改过的商品按当前数量重放上去，并写入新的日志记录，
+ * 已经返回成功的修改不会随旧日志段删除而丢失。
+ */
+@Service
+public class CartStoreServiceImpl implements CartStoreService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartStoreServiceImpl.class);
+
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private static final class Line {
+        private final long id;
+        private final long productId;
+        private int quantity;
+        private final LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
+
+        private Line(long id, long productId, int quantity, LocalDateTime createdAt, LocalDateTime updatedAt) {
+            this.id = id;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    // 单个用户的购物车，所有读写在对象锁内进行
+    private static final class CartState {
+        private final long userId;
+        // 每次修改加一，随购物车写回数据库；写回成功时用于判断快照之后是否又有修改，也返回给客户端做乐观并发控制
+        private long version;
+        // 数据库中该购物车的版本（加载或上次写回时），数据库中还没有购物车时为-1
+        private long persistedVersion = -1;
+        // 上次写回之后改过的商品 -> 修改后的版本号，写回冲突时按这些商品重放本地修改
+        private final Map<Long, Long> unflushed = new HashMap<>();
+        // 上次写回之后清空购物车时的版本号，没有清空过为-1
+        private long clearedAt = -1;
+        private Long cartId;
+        private LocalDateTime createTime;
+        private LocalDateTime updateTime;
+        private final Map<Long, Line> items = new LinkedHashMap<>();
+
+        private CartState(long userId) {
+            this.userId = userId;
+        }
+    }
+
+    private record LineSnapshot(long id, long productId, int quantity, LocalDateTime createdAt, LocalDateTime updatedAt) {
+    }
+
+    private record Snapshot(long userId, long version, long baseVersion, long cartId, LocalDateTime createTime,
+                            LocalDateTime updateTime, List<LineSnapshot> lines) {
+    }
+
+    // 号段ID分配：id_generator中的值是已分配号段的上界
+    private final class IdBlock {
+        private final String sequence;
+        private long next = 1;
+        private long max;
+
+        private IdBlock(String sequence) {
+            this.sequence = sequence;
+        }
+
+        private synchronized long next() {
+            if (next > max) {
+                Long upper = newTransaction.execute(status -> {
+                    jdbcTemplate.update("UPDATE id_generator SET next_val = next_val + ? WHERE sequence_name = ?",
+                            ID_BLOCK_SIZE, sequence);
+                    return jdbcTemplate.queryForObject(
+                            "SELECT next_val FROM id_generator WHERE sequence_name = ?", Long.class, sequence);
+                });
+                max = upper;
+                next = upper - ID_BLOCK_SIZE + 1;
+            }
+            return next++;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${cart.store.max-carts:100000}")
+    private long maxCarts;
+
+    @Value("${cart.store.idle-minutes:30}")
+    private long idleMinutes;
+
+    @Value("${cart.store.flush-batch-size:200}")
+    private int flushBatchSize;
+
+    @Value("${cart.store.wal-dir:data/cart-wal}")
+    private String walDir;
+
+    @Value("${cart.store.wal-fsync:true}")
+    private boolean walFsync;
+
+    private TransactionTemplate newTransaction;
+    private IdBlock cartIds;
+    private IdBlock itemIds;
+    private WriteAheadLog wal;
+    private Cache<Long, CartState> carts;
+
+    // 有未落库修改的购物车，写回成功后才移除；淘汰出缓存的购物车在写回前仍保留在这里
+    private final Map<Long, CartState> dirty = new ConcurrentHashMap<>();
+    // 购物车项ID -> 用户ID，兼容按购物车项ID修改的接口
+    private final Map<Long, Long> itemOwners = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+
+    @PostConstruct
+    public void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        cartIds = new IdBlock("cart");
+        itemIds = new IdBlock("cart_items");
+        carts = Caffeine.newBuilder()
+                .maximumSize(maxCarts)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .removalListener((Long userId, CartState state, RemovalCause cause) -> {
+                    if (state != null && dirty.get(userId) != state) {
+                        synchronized (state) {
+                            state.items.values().forEach(line -> itemOwners.remove(line.id, userId));
+                        }
+                    }
+                })
+                .build();
+
+        wal = new WriteAheadLog(Path.of(walDir), walFsync);
+        recover();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            flushAll();
+        } finally {
+            wal.close();
+        }
+    }
+
+    @Override
+    public Cart getCart(Long userId) {
+        CartState state = load(userId);
+        synchronized (state) {
+            return state.cartId != null ? toCart(state) : null;
+        }
+    }
+
+    @Override
+    public Cart getOrCreateCart(Long userId) {
+        while (true) {
+            CartState state = load(userId);
+            synchronized (state) {
+                if (state.cartId != null) {
+                    return toCart(state);
+                }
+                // 先分配ID再标记为脏，分配失败时不会留下没有购物车ID的脏数据
+                long cartId = cartIds.next();
+                if (!claim(state)) {
+                    continue;
+                }
+                LocalDateTime now = LocalDateTime.now();
+                wal.append("N " + userId + " " + cartId + " " + toMillis(now));
+                state.cartId = cartId;
+                state.createTime = now;
+                state.updateTime = now;
+                state.version++;
+                return toCart(state);
+            }
+        }
+    }
+
+    @Override
+    public Cart addQuantity(Long userId, Long productId, int delta) {
+        return update(userId, productId, delta, true);
+    }
+
+    @Override
+    public Cart setQuantity(Long userId, Long productId, int quantity) {
+        return update(userId, productId, quantity, false);
+    }
+
+    private Cart update(Long userId, Long productId, int value, boolean relative) {
+        while (true) {
+            CartState state = load(userId);
+            synchronized (state) {
+                Line line = state.items.get(productId);
+                int current = line != null ? line.quantity : 0;
+                int quantity = Math.max(0, relative ? current + value : value);
+                if (quantity == current) {
+                    return state.cartId != null ? toCart(state) : null;
+                }
+                long cartId = state.cartId != null ? state.cartId : cartIds.next();
+                long itemId = line != null ? line.id : itemIds.next();
+                if (!claim(state)) {
+                    continue;
+                }
+                LocalDateTime now = LocalDateTime.now();
+                wal.append("S " + userId + " " + cartId + " " + itemId + " " + productId + " " + quantity + " " + toMillis(now));
+                applySet(state, cartId, itemId, productId, quantity, now);
+                return toCart(state);
+            }
+        }
+    }
+
+    @Override
+    public PatchResult patch(Long userId, Long expectedVersion, Map<Long, Integer> quantities) {
+        while (true) {
+            CartState state = load(userId);
+            synchronized (state) {
+                if (expectedVersion != null && expectedVersion != state.version) {
+                    throw new CartVersionConflictException(expectedVersion, state.version);
+                }
+                Map<Long, Integer> changes = new LinkedHashMap<>();
+                for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                    Line line = state.items.get(entry.getKey());
+                    int quantity = Math.max(0, entry.getValue());
+                    if (quantity != (line != null ? line.quantity : 0)) {
+                        changes.put(entry.getKey(), quantity);
+                    }
+                }
+                if (changes.isEmpty()) {
+                    return new PatchResult(state.cartId != null ? toCart(state) : null, Set.of(), List.of());
+                }
+
+                long cartId = state.cartId != null ? state.cartId : cartIds.next();
+                Map<Long, Long> lineIds = new HashMap<>();
+                for (Map.Entry<Long, Integer> change : changes.entrySet()) {
+                    Line line = state.items.get(change.getKey());
+                    if (line != null) {
+                        lineIds.put(change.getKey(), line.id);
+                    } else if (change.getValue() > 0) {
+                        lineIds.put(change.getKey(), itemIds.next());
+                    }
+                }
+                if (!claim(state)) {
+                    continue;
+                }
+
+                // 整批写成一条日志记录，崩溃时要么全部恢复要么全部丢弃
+                LocalDateTime now = LocalDateTime.now();
+                StringBuilder record = new StringBuilder("P ").append(userId).append(' ').append(cartId)
+                        .append(' ').append(toMillis(now));
+                for (Map.Entry<Long, Integer> change : changes.entrySet()) {
+                    record.append(' ').append(lineIds.get(change.getKey())).append(':').append(change.getKey())
+                            .append(':').append(change.getValue());
+                }
+                wal.append(record.toString());
+
+                List<Long> removedItemIds = new ArrayList<>();
+                for (Map.Entry<Long, Integer> change : changes.entrySet()) {
+                    long itemId = lineIds.get(change.getKey());
+                    if (change.getValue() == 0) {
+                        removedItemIds.add(itemId);
+                    }
+                    applySet(state, cartId, itemId, change.getKey(), change.getValue(), now);
+                }
+                return new PatchResult(toCart(state), changes.keySet(), removedItemIds);
+            }
+        }
+    }
+
+    @Override
+    public void clear(Long userId) {
+        while (true) {
+            CartState state = load(userId);
+            synchronized (state) {
+                if (state.items.isEmpty()) {
+                    return;
+                }
+                if (!claim(state)) {
+                    continue;
+                }
+                LocalDateTime now = LocalDateTime.now();
+                wal.append("C " + userId + " " + toMillis(now));
+                applyClear(state, now);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public long[] findItem(Long cartItemId) {
+        Long userId = itemOwners.get(cartItemId);
+        if (userId == null) {
+            List<Long> owners = jdbcTemplate.queryForList(
+                    "SELECT c.user_id FROM cart_items ci JOIN cart c ON c.id = ci.cart_id WHERE ci.id = ?",
+                    Long.class, cartItemId);
+            if (owners.isEmpty()) {
+                return null;
+            }
+            userId = owners.get(0);
+        }
+        // 以内存状态为准，数据库中存在但已在内存删除的购物车项视为不存在
+        CartState state = load(userId);
+        synchronized (state) {
+            for (Line line : state.items.values()) {
+                if (line.id == cartItemId) {
+                    return new long[]{userId, line.productId};
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval-ms:1000}")
+    public int flushAll() {
+        synchronized (flushLock) {
+            if (dirty.isEmpty()) {
+                return 0;
+            }
+            // 先切换日志段：此后的修改写入新段，旧段中的修改都已标记为脏，会包含在本次写回中
+            long lastSegment = wal.rotate();
+
+            List<CartState> pending = new ArrayList<>(dirty.values());
+            int flushed = 0;
+            boolean failed = false;
+            for (int i = 0; i < pending.size(); i += flushBatchSize) {
+                List<CartState> states = pending.subList(i, Math.min(i + flushBatchSize, pending.size()));
+                List<Snapshot> snapshots = new ArrayList<>(states.size());
+                for (CartState state : states) {
+                    snapshots.add(snapshot(state));
+                }
+                Set<Long> conflicts;
+                try {
+                    conflicts = transactionTemplate.execute(status -> write(snapshots));
+                } catch (Exception e) {
+                    // 保持为脏，下次重试
+                    logger.error("购物车写回数据库失败, 购物车数: {}", snapshots.size(), e);
+                    failed = true;
+                    continue;
+                }
+                for (int j = 0; j < states.size(); j++) {
+                    CartState state = states.get(j);
+                    long version = snapshots.get(j).version();
+                    synchronized (state) {
+                        if (conflicts.contains(state.userId)) {
+                            try {
+                                rebase(state);
+                            } catch (Exception e) {
+                                // 重放记录还没写入新段，旧段必须保留
+                                logger.error("购物车写回冲突后重新加载失败, 用户ID: {}", state.userId, e);
+                                failed = true;
+                            }
+                            continue;
+                        }
+                        state.persistedVersion = version;
+                        state.unflushed.values().removeIf(changedAt -> changedAt <= version);
+                        if (state.clearedAt <= version) {
+                            state.clearedAt = -1;
+                        }
+                        // 快照之后又有修改的保持为脏，由下一轮写回
+                        if (state.version == version) {
+                            dirty.remove(state.userId, state);
+                        }
+                    }
+                }
+                flushed += snapshots.size();
+            }
+
+            // 只有全部写回成功才能删除旧日志段
+            if (!failed) {
+                wal.deleteUpTo(lastSegment);
+            }
+            return flushed;
+        }
+    }
+
+    /**
+     * 获取规范的购物车对象：优先内存缓存，其次尚未写回的脏购物车，最后从数据库加载
+     */
+    private CartState load(Long userId) {
+        return carts.get(userId, id -> {
+            CartState pending = dirty.get(id);
+            return pending != null ? pending : loadFromDb(id);
+        });
+    }
+
+    /**
+     * 修改前在对象锁内调用：先标记为脏，再确认该对象仍是该用户的规范对象
+     * 对象已被淘汰且缓存中加载了新对象时返回false，调用方重新获取后重试
+     */
+    private boolean claim(CartState state) {
+        dirty.put(state.userId, state);
+        CartState cached = carts.getIfPresent(state.userId);
+        if (cached != null && cached != state) {
+            dirty.remove(state.userId, state);
+            return false;
+        }
+        return true;
+    }
+
+    private CartState loadFromDb(Long userId) {
+        CartState state = new CartState(userId);
+        jdbcTemplate.query("SELECT id, create_time, update_time, version FROM cart WHERE user_id = ? ORDER BY id LIMIT 1", rs -> {
+            state.cartId = rs.getLong("id");
+            state.version = rs.getLong("version");
+            state.persistedVersion = state.version;
+            state.createTime = toLocalDateTime(rs.getTimestamp("create_time"));
+            state.updateTime = toLocalDateTime(rs.getTimestamp("update_time"));
+        }, userId);
+        if (state.cartId != null) {
+            jdbcTemplate.query("SELECT id, product_id, quantity, added_time, update_time FROM cart_items " +
+                    "WHERE cart_id = ? ORDER BY id", rs -> {
+                long productId = rs.getLong("product_id");
+                // 加唯一约束前的历史数据中同一商品可能有多行，只保留第一行，其余在下次写回时删除
+                if (!state.items.containsKey(productId)) {
+                    Line line = new Line(rs.getLong("id"), productId, rs.getInt("quantity"),
+                            toLocalDateTime(rs.getTimestamp("added_time")), toLocalDateTime(rs.getTimestamp("update_time")));
+                    state.items.put(productId, line);
+                    itemOwners.put(line.id, userId);
+                }
+            }, state.cartId);
+        }
+        return state;
+    }
+
+    private void applySet(CartState state, long cartId, long itemId, long productId, int quantity, LocalDateTime now) {
+        if (state.cartId == null) {
+            state.cartId = cartId;
+            state.createTime = now;
+        }
+        state.updateTime = now;
+        state.version++;
+        state.unflushed.put(productId, state.version);
+        Line line = state.items.get(productId);
+        if (quantity <= 0) {
+            if (line != null) {
+                state.items.remove(productId);
+                itemOwners.remove(line.id, state.userId);
+            }
+        } else if (line != null && line.id == itemId) {
+            line.quantity = quantity;
+            line.updatedAt = now;
+        } else {
+            state.items.put(productId, new Line(itemId, productId, quantity, now, now));
+            itemOwners.put(itemId, state.userId);
+        }
+    }
+
+    private void applyClear(CartState state, LocalDateTime now) {
+        state.items.values().forEach(line -> itemOwners.remove(line.id, state.userId));
+        state.items.clear();
+        state.updateTime = now;
+        state.version++;
+        state.unflushed.clear();
+        state.clearedAt = state.version;
+    }
+
+    // 启动时重放上次未删除的日志段，并立即写回
+    private void recover() {
+        int[] count = {0};
+        wal.replay(record -> {
+            String[] parts = record.split(" ");
+            try {
+                long userId = Long.parseLong(parts[1]);
+                CartState state = load(userId);
+                synchronized (state) {
+                    switch (parts[0]) {
+                        case "N" -> {
+                            if (state.cartId == null) {
+                                state.cartId = Long.parseLong(parts[2]);
+                                state.createTime = fromMillis(Long.parseLong(parts[3]));
+                                state.updateTime = state.createTime;
+                                state.version++;
+                            }
+                        }
+                        case "S" -> applySet(state, Long.parseLong(parts[2]), Long.parseLong(parts[3]),
+                                Long.parseLong(parts[4]), Integer.parseInt(parts[5]), fromMillis(Long.parseLong(parts[6])));
+                        case "C" -> applyClear(state, fromMillis(Long.parseLong(parts[2])));
+                        case "P" -> {
+                            long cartId = Long.parseLong(parts[2]);
+                            LocalDateTime time = fromMillis(Long.parseLong(parts[3]));
+                            for (int i = 4; i < parts.length; i++) {
+                                String[] line = parts[i].split(":");
+                                applySet(state, cartId, Long.parseLong(line[0]), Long.parseLong(line[1]),
+                                        Integer.parseInt(line[2]), time);
+                            }
+                        }
+                        default -> throw new IllegalArgumentException(parts[0]);
+                    }
+                    dirty.put(userId, state);
+                }
+                count[0]++;
+            } catch (RuntimeException e) {
+                if (e instanceof org.springframework.dao.DataAccessException) {
+                    throw e;
+                }
+                // 崩溃时最后一条记录可能只写了一半
+                logger.warn("忽略无法解析的购物车日志记录: {}", record);
+            }
+        });
+        if (count[0] > 0) {
+            logger.info("已从预写日志恢复购物车修改, 记录数: {}, 购物车数: {}", count[0], dirty.size());
+        }
+        flushAll();
+    }
+
+    private Snapshot snapshot(CartState state) {
+        synchronized (state) {
+            List<LineSnapshot> lines = new ArrayList<>(state.items.size());
+            for (Line line : state.items.values()) {
+                lines.add(new LineSnapshot(line.id, line.productId, line.quantity, line.createdAt, line.updatedAt));
+            }
+            return new Snapshot(state.userId, state.version, state.persistedVersion, state.cartId, state.createTime, state.updateTime, lines);
+        }
+    }
+
+    /**
+     * 在对象锁内调用：购物车已被其他实例修改，换成数据库中的最新状态，再把上次写回之后本地改过的商品
+     * 按当前数量（清空过的还要删除数据库中的其他商品）作为一条日志记录重放，保持为脏由下一轮写回
+     * 日志记录写入当前段，旧段删除后崩溃也能从数据库状态加这条记录恢复
+     */
+    private void rebase(CartState state) {
+        CartState fresh = loadFromDb(state.userId);
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        if (state.clearedAt >= 0) {
+            fresh.items.keySet().forEach(productId -> quantities.put(productId, 0));
+        }
+        for (Long productId : state.unflushed.keySet()) {
+            Line line = state.items.get(productId);
+            quantities.put(productId, line != null ? line.quantity : 0);
+        }
+        quantities.entrySet().removeIf(entry -> {
+            Line line = fresh.items.get(entry.getKey());
+            return entry.getValue() == (line != null ? line.quantity : 0);
+        });
+        logger.warn("购物车已被其他实例修改, 在数据库最新状态上重放本地修改, 用户ID: {}, 本地版本: {}, 数据库版本: {}, 重放商品数: {}",
+                state.userId, state.version, fresh.persistedVersion, quantities.size());
+
+        Set<Long> freshItemIds = new HashSet<>();
+        fresh.items.values().forEach(line -> freshItemIds.add(line.id));
+        state.items.values().stream().filter(line -> !freshItemIds.contains(line.id))
+                .forEach(line -> itemOwners.remove(line.id, state.userId));
+        Long localCartId = state.cartId;
+        state.cartId = fresh.cartId;
+        state.createTime = fresh.createTime;
+        state.updateTime = fresh.updateTime;
+        state.items.clear();
+        state.items.putAll(fresh.items);
+        // 版本号不回退，客户端持有的旧版本不会和重放后的版本撞上
+        state.version = Math.max(state.version, fresh.version);
+        state.persistedVersion = fresh.persistedVersion;
+        state.unflushed.clear();
+        state.clearedAt = -1;
+
+        if (quantities.isEmpty()) {
+            dirty.remove(state.userId, state);
+            return;
+        }
+        long cartId = state.cartId != null ? state.cartId : localCartId != null ? localCartId : cartIds.next();
+        Map<Long, Long> lineIds = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Line line = state.items.get(entry.getKey());
+            lineIds.put(entry.getKey(), line != null ? line.id : itemIds.next());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        StringBuilder record = new StringBuilder("P ").append(state.userId).append(' ').append(cartId)
+                .append(' ').append(toMillis(now));
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            record.append(' ').append(lineIds.get(entry.getKey())).append(':').append(entry.getKey())
+                    .append(':').append(entry.getValue());
+        }
+        wal.append(record.toString());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            applySet(state, cartId, lineIds.get(entry.getKey()), entry.getKey(), entry.getValue(), now);
+        }
+    }
+
+    /**
+     * 一批购物车的写回：先锁定这些用户的cart行核对版本，再一次查询现有购物车项，与快照比较后批量写入和删除
+     * 返回版本不一致（被其他实例修改过）而没有写入的用户ID
+     */
+    private Set<Long> write(List<Snapshot> snapshots) {
+        // 用户ID -> {购物车ID, 版本}，同一用户有多个购物车时取ID最小的，与加载时一致
+        Map<Long, long[]> persisted = new HashMap<>();
+        List<Long> userIds = snapshots.stream().map(Snapshot::userId).toList();
+        namedParameterJdbcTemplate.query("SELECT id, user_id, version FROM cart WHERE user_id IN (:userIds) " +
+                        "ORDER BY id FOR UPDATE",
+                new MapSqlParameterSource("userIds", userIds), rs -> {
+                    persisted.putIfAbsent(rs.getLong("user_id"), new long[]{rs.getLong("id"), rs.getLong("version")});
+                });
+
+        Set<Long> conflicts = new HashSet<>();
+        List<Snapshot> accepted = new ArrayList<>(snapshots.size());
+        for (Snapshot snapshot : snapshots) {
+            long[] row = persisted.get(snapshot.userId());
+            boolean unchanged = snapshot.baseVersion() < 0
+                    ? row == null
+                    : row != null && row[0] == snapshot.cartId() && row[1] == snapshot.baseVersion();
+            if (unchanged) {
+                accepted.add(snapshot);
+            } else {
+                conflicts.add(snapshot.userId());
+            }
+        }
+        if (accepted.isEmpty()) {
+            return conflicts;
+        }
+
+        List<Object[]> cartRows = new ArrayList<>();
+        List<Long> cartIdList = new ArrayList<>();
+        for (Snapshot snapshot : accepted) {
+            cartRows.add(new Object[]{snapshot.cartId(), snapshot.userId(), snapshot.createTime(), snapshot.updateTime(),
+                    snapshot.version()});
+            cartIdList.add(snapshot.cartId());
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO cart (id, user_id, create_time, update_time, version) VALUES (?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE update_time = VALUES(update_time), version = VALUES(version)", cartRows);
+
+        // 数据库中现有的购物车项：cartId -> (itemId -> quantity)
+        Map<Long, Map<Long, Integer>> existing = new HashMap<>();
+        namedParameterJdbcTemplate.query("SELECT id, cart_id, quantity FROM cart_items WHERE cart_id IN (:cartIds)",
+                new MapSqlParameterSource("cartIds", cartIdList), rs -> {
+                    existing.computeIfAbsent(rs.getLong("cart_id"), k -> new HashMap<>())
+                            .put(rs.getLong("id"), rs.getInt("quantity"));
+                });
+
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (Snapshot snapshot : accepted) {
+            Map<Long, Integer> current = existing.getOrDefault(snapshot.cartId(), new HashMap<>());
+            if (snapshot.lines().isEmpty()) {
+                // 清空购物车用一条DELETE
+                if (!current.isEmpty()) {
+                    cartItemRepository.deleteAllByCartIdInBulk(snapshot.cartId());
+                }
+                continue;
+            }
+            for (LineSnapshot line : snapshot.lines()) {
+                Integer quantity = current.remove(line.id());
+                if (quantity == null || quantity != line.quantity()) {
+                    upserts.add(new Object[]{line.id(), snapshot.cartId(), line.productId(), line.quantity(),
+                            line.createdAt(), line.updatedAt()});
+                }
+            }
+            current.keySet().forEach(id -> deletes.add(new Object[]{id}));
+        }
+        // 先删除再写入：同一商品移除后重新加入时，旧行先删掉，不会与新行的(cart_id, product_id)冲突
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM cart_items WHERE id = ?", deletes);
+        }
+        // 新增和修改合并为一种语句：按(cart_id, product_id)唯一键插入或覆盖数量
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO cart_items (id, cart_id, product_id, quantity, added_time, update_time) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), update_time = VALUES(update_time)", upserts);
+        }
+        return conflicts;
+    }
+
+    private Cart toCart(CartState state) {
+        Cart cart = new Cart();
+        cart.setId(state.cartId);
+        cart.setUserId(state.userId);
+        cart.setCreateTime(state.createTime);
+        cart.setUpdateTime(state.updateTime);
+        cart.setVersion(state.version);
+        List<CartItem> items = new ArrayList<>(state.items.size());
+        for (Line line : state.items.values()) {
+            CartItem item = new CartItem();
+            item.setId(line.id);
+            item.setCartId(state.cartId);
+            item.setProductId(line.productId);
+            item.setQuantity(line.quantity);
+            item.setCreatedAt(line.createdAt);
+            item.setUpdatedAt(line.updatedAt);
+            items.add(item);
+        }
+        cart.setItems(items);
+        return cart;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,398 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.entity.Order;
+import com.backmore.secondhand_mall.entity.OrderItem;
+import com.backmore.secondhand_mall.entity.Product;
+import com.backmore.secondhand_mall.repository.ProductRepository;
+import com.backmore.secondhand_mall.service.FlashSaleService;
+import com.backmore.secondhand_mall.service.OrderService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 秒杀模式
+ * 开启后库存预载为多个分片的内存令牌，抢购只做CAS扣减，不访问数据库；
+ * 抢到令牌的请求进入有界队列，由单个写线程批量创建订单（仍走数据库条件扣减，数据库库存是最终依据）
+ */
+@Service
+public class FlashSaleServiceImpl implements FlashSaleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlashSaleServiceImpl.class);
+
+    private static final int MAX_SHARDS = 16;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${flash-sale.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${flash-sale.batch-size:100}")
+    private int batchSize;
+
+    @Value("${flash-sale.drain-timeout-ms:10000}")
+    private long drainTimeoutMs;
+
+    private final Map<Long, Sale> sales = new ConcurrentHashMap<>();
+
+    // 凭证结果只保留一段时间，供前端轮询
+    private final Cache<String, Ticket> tickets = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(30))
+            .maximumSize(100_000)
+            .build();
+
+    private BlockingQueue<Ticket> queue;
+    private Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * 单个商品的秒杀状态，令牌按分片存放以分散CAS竞争
+     */
+    private static class Sale {
+        final Long productId;
+        final BigDecimal price;
+        final int initialStock;
+        final AtomicInteger[] shards;
+        final Set<Long> buyers = ConcurrentHashMap.newKeySet();
+        final AtomicInteger admitted = new AtomicInteger();
+        final AtomicInteger persisted = new AtomicInteger();
+        final AtomicInteger persistedQuantity = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile boolean open = true;
+
+        Sale(Long productId, BigDecimal price, int stock) {
+            this.productId = productId;
+            this.price = price;
+            this.initialStock = stock;
+            int shardCount = Math.max(1, Math.min(MAX_SHARDS, stock));
+            this.shards = new AtomicInteger[shardCount];
+            for (int i = 0; i < shardCount; i++) {
+                shards[i] = new AtomicInteger(stock / shardCount + (i < stock % shardCount ? 1 : 0));
+            }
+        }
+
+        // 从随机分片开始尝试，当前分片不足时依次尝试其他分片
+        boolean acquire(int quantity) {
+            int start = ThreadLocalRandom.current().nextInt(shards.length);
+            for (int i = 0; i < shards.length; i++) {
+                AtomicInteger shard = shards[(start + i) % shards.length];
+                int current;
+                while ((current = shard.get()) >= quantity) {
+                    if (shard.compareAndSet(current, current - quantity)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        void giveBack(int quantity) {
+            shards[ThreadLocalRandom.current().nextInt(shards.length)].addAndGet(quantity);
+        }
+
+        int remaining() {
+            int sum = 0;
+            for (AtomicInteger shard : shards) {
+                sum += shard.get();
+            }
+            return sum;
+        }
+    }
+
+    private static class Ticket {
+        final String id = UUID.randomUUID().toString();
+        final Sale sale;
+        final Long userId;
+        final int quantity;
+        final String shippingAddress;
+        final String paymentMethod;
+        volatile String status = "QUEUED";
+        volatile Long orderId;
+        volatile String message;
+
+        Ticket(Sale sale, Long userId, int quantity, String shippingAddress, String paymentMethod) {
+            this.sale = sale;
+            this.userId = userId;
+            this.quantity = quantity;
+            this.shippingAddress = shippingAddress;
+            this.paymentMethod = paymentMethod;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        writer = new Thread(this::writeLoop, "flash-sale-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 关闭前停止受理并把队列中已受理的订单写完
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        sales.values().forEach(sale -> sale.open = false);
+        running = false;
+        writer.join(drainTimeoutMs);
+    }
+
+    @Override
+    public Map<String, Object> enable(Long productId) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("商品不存在: " + productId));
+        if (!Boolean.TRUE.equals(product.getStatus())) {
+            throw new IllegalStateException("商品未上架");
+        }
+        int stock = product.getStock() != null ? product.getStock() : 0;
+        Sale sale = new Sale(productId, BigDecimal.valueOf(product.getPrice()), stock);
+        if (sales.putIfAbsent(productId, sale) != null) {
+            throw new IllegalStateException("商品已开启秒杀");
+        }
+        logger.info("商品开启秒杀, 商品ID: {}, 库存: {}, 分片数: {}", productId, stock, sale.shards.length);
+        return status(productId);
+    }
+
+    @Override
+    public Map<String, Object> disable(Long productId) {
+        Sale sale = sales.get(productId);
+        if (sale == null) {
+            throw new IllegalStateException("商品未开启秒杀");
+        }
+        sale.open = false;
+
+        // 等待已受理的订单全部写入
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        while (sale.inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        Map<String, Object> result = reconcile(sale);
+        if (sale.inFlight.get() == 0) {
+            sales.remove(productId, sale);
+        }
+        return result;
+    }
+
+    @Override
+    public String tryBuy(Long productId, Long userId, int quantity, String shippingAddress, String paymentMethod) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("购买数量必须大于0");
+        }
+        Sale sale = sales.get(productId);
+        if (sale == null || !sale.open) {
+            throw new IllegalStateException("商品未开启秒杀");
+        }
+        if (!sale.buyers.add(userId)) {
+            throw new IllegalStateException("每人限购一次");
+        }
+        if (!sale.acquire(quantity)) {
+            sale.buyers.remove(userId);
+            throw new IllegalStateException("商品已售罄");
+        }
+
+        Ticket ticket = new Ticket(sale, userId, quantity, shippingAddress, paymentMethod);
+        tickets.put(ticket.id, ticket);
+        sale.inFlight.incrementAndGet();
+        if (!queue.offer(ticket)) {
+            // 队列满时立即拒绝，归还令牌
+            sale.inFlight.decrementAndGet();
+            sale.giveBack(quantity);
+            sale.buyers.remove(userId);
+            tickets.invalidate(ticket.id);
+            throw new IllegalStateException("排队人数过多，请稍后再试");
+        }
+        sale.admitted.incrementAndGet();
+        return ticket.id;
+    }
+
+    @Override
+    public Map<String, Object> getTicket(String ticketId) {
+        Ticket ticket = tickets.getIfPresent(ticketId);
+        if (ticket == null) {
+            return null;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ticketId", ticket.id);
+        result.put("productId", ticket.sale.productId);
+        result.put("status", ticket.status);
+        result.put("orderId", ticket.orderId);
+        result.put("message", ticket.message);
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> status(Long productId) {
+        Sale sale = sales.get(productId);
+        if (sale == null) {
+            return null;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("productId", productId);
+        result.put("open", sale.open);
+        result.put("initialStock", sale.initialStock);
+        result.put("remainingTokens", sale.remaining());
+        result.put("admitted", sale.admitted.get());
+        result.put("persisted", sale.persisted.get());
+        result.put("failed", sale.failed.get());
+        result.put("inFlight", sale.inFlight.get());
+        return result;
+    }
+
+    @Override
+    public boolean isEnabled(Long productId) {
+        Sale sale = sales.get(productId);
+        // 关闭后队列里已受理的订单还没写完时仍算秒杀中，避免普通订单抢先扣掉这部分库存
+        return sale != null && (sale.open || sale.inFlight.get() > 0);
+    }
+
+    private void writeLoop() {
+        List<Ticket> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Ticket first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("秒杀订单写入线程异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 整批在一个事务中写入；整批失败时退回逐单事务，避免一个坏订单拖垮整批
+     */
+    private void writeBatch(List<Ticket> batch) {
+        List<Order> created;
+        try {
+            created = transactionTemplate.execute(status -> {
+                List<Order> orders = new ArrayList<>(batch.size());
+                for (Ticket ticket : batch) {
+                    orders.add(orderService.createOrderIfInStock(buildOrder(ticket)));
+                }
+                return orders;
+            });
+        } catch (Exception e) {
+            logger.warn("秒杀订单批量写入失败，改为逐单写入, 批大小: {}", batch.size(), e);
+            created = new ArrayList<>(batch.size());
+            for (Ticket ticket : batch) {
+                try {
+                    created.add(transactionTemplate.execute(status -> orderService.createOrderIfInStock(buildOrder(ticket))));
+                } catch (Exception ex) {
+                    logger.error("秒杀订单写入失败, 凭证: {}", ticket.id, ex);
+                    created.add(null);
+                    ticket.message = "订单写入失败";
+                }
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Ticket ticket = batch.get(i);
+            Order order = created.get(i);
+            Sale sale = ticket.sale;
+            if (order != null) {
+                ticket.orderId = order.getId();
+                ticket.status = "CREATED";
+                sale.persisted.incrementAndGet();
+                sale.persistedQuantity.addAndGet(ticket.quantity);
+            } else {
+                ticket.status = "FAILED";
+                if (ticket.message == null) {
+                    // 数据库库存确实不足，预扣的名额不再退回
+                    ticket.message = "商品已售罄";
+                } else {
+                    // 写入异常而非售罄，退回预扣的库存，避免名额白白丢失
+                    sale.giveBack(ticket.quantity);
+                }
+                sale.failed.incrementAndGet();
+                sale.buyers.remove(ticket.userId);
+            }
+            sale.inFlight.decrementAndGet();
+        }
+    }
+
+    private Order buildOrder(Ticket ticket) {
+        OrderItem item = new OrderItem();
+        item.setProductId(ticket.sale.productId);
+        item.setQuantity(ticket.quantity);
+        item.setPrice(ticket.sale.price);
+        item.setTotalPrice(ticket.sale.price.multiply(BigDecimal.valueOf(ticket.quantity)));
+
+        Order order = new Order();
+        order.setUserId(ticket.userId);
+        order.setTotalPrice(item.getTotalPrice());
+        order.setShippingAddress(ticket.shippingAddress);
+        order.setPaymentMethod(ticket.paymentMethod);
+        order.setItems(new ArrayList<>(List.of(item)));
+        return order;
+    }
+
+    /**
+     * 对账：秒杀期间落库的数量应等于数据库库存的减少量，不一致时说明有秒杀之外的库存变动
+     */
+    private Map<String, Object> reconcile(Sale sale) {
+        int dbStock = productRepository.findById(sale.productId)
+                .map(product -> product.getStock() != null ? product.getStock() : 0)
+                .orElse(0);
+        int expectedStock = sale.initialStock - sale.persistedQuantity.get();
+
+        Map<String, Object> result = status(sale.productId);
+        if (result == null) {
+            result = new LinkedHashMap<>();
+        }
+        result.put("persistedQuantity", sale.persistedQuantity.get());
+        result.put("dbStock", dbStock);
+        result.put("expectedStock", expectedStock);
+        result.put("consistent", dbStock == expectedStock && sale.inFlight.get() == 0);
+        if (dbStock != expectedStock) {
+            logger.warn("秒杀对账不一致, 商品ID: {}, 数据库库存: {}, 预期库存: {}", sale.productId, dbStock, expectedStock);
+        } else {
+            logger.info("秒杀对账完成, 商品ID: {}, 落库数量: {}, 剩余库存: {}", sale.productId, sale.persistedQuantity.get(), dbStock);
+        }
+        return result;
+    }
+}
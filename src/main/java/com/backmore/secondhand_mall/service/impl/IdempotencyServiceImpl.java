@@ -0,0 +1,278 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.service.IdempotencyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 幂等键处理
+ * 查找顺序：内存LRU -> 正在执行的同键请求 -> 数据库；都没有时才执行业务并保存响应
+ * 同一进程内的并发重复请求共享一个CompletableFuture，只有第一个请求真正执行
+ * 执行前先插入IN_PROGRESS记录占用幂等键，主键冲突说明其他实例（或重启前）已经在处理，
+ * 此时等待其结果而不是再执行一次；执行完成后把响应更新到这条记录上
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyServiceImpl.class);
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private static final String STATUS_IN_PROGRESS = "IN_PROGRESS";
+    private static final String STATUS_COMPLETED = "COMPLETED";
+    // 等待其他实例处理结果时的轮询间隔
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private record StoredResponse(String requestHash, int statusCode, String body) {
+    }
+
+    // 数据库中的幂等键记录，处理中时response为null
+    private record KeyRecord(String status, StoredResponse response) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${idempotency.cache-size:10000}")
+    private long cacheSize;
+
+    @Value("${idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMillis;
+
+    @Value("${idempotency.lease-ms:600000}")
+    private long leaseMillis;
+
+    private Cache<String, StoredResponse> recent;
+
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        recent = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .build();
+    }
+
+    @Override
+    public ResponseEntity<?> execute(String key, String scope, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(Map.of("error", HEADER + "长度不能超过" + MAX_KEY_LENGTH));
+        }
+        String scopeKey = scope + ":" + key;
+        String requestHash = hash(request);
+
+        StoredResponse stored = recent.getIfPresent(scopeKey);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+
+        CompletableFuture<StoredResponse> future = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = inFlight.putIfAbsent(scopeKey, future);
+        if (existing != null) {
+            // 相同请求正在执行，等待它的结果
+            return awaitAndReplay(existing, requestHash);
+        }
+
+        try {
+            if (!claim(scopeKey, requestHash)) {
+                // 其他实例持有该键：等待它完成后重放
+                stored = awaitClaimed(scopeKey);
+                if (stored == null) {
+                    future.completeExceptionally(new IllegalStateException("幂等键由其他实例处理中"));
+                    return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "相同请求正在处理中，请稍后重试"));
+                }
+                recent.put(scopeKey, stored);
+                future.complete(stored);
+                return replay(stored, requestHash);
+            }
+
+            ResponseEntity<?> response;
+            try {
+                response = action.get();
+            } catch (RuntimeException e) {
+                release(scopeKey);
+                throw e;
+            }
+            stored = new StoredResponse(requestHash, response.getStatusCode().value(), toJson(response.getBody()));
+            if (response.getStatusCode().is5xxServerError()) {
+                // 服务端错误不保存，释放幂等键允许客户端重试
+                release(scopeKey);
+            } else {
+                complete(scopeKey, stored);
+                recent.put(scopeKey, stored);
+            }
+            future.complete(stored);
+            return response;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopeKey, future);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = jdbcTemplate.update("DELETE FROM idempotency_key WHERE created_at < ?",
+                LocalDateTime.now().minusHours(ttlHours));
+        if (deleted > 0) {
+            logger.info("已清理过期幂等键, 数量: {}", deleted);
+        }
+    }
+
+    private ResponseEntity<?> awaitAndReplay(CompletableFuture<StoredResponse> future, String requestHash) {
+        try {
+            return replay(future.get(waitTimeoutMillis, TimeUnit.MILLISECONDS), requestHash);
+        } catch (Exception e) {
+            // 首个请求失败或超时，让客户端稍后用同一个键重试
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "相同请求正在处理中，请稍后重试"));
+        }
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (stored.requestHash() != null && requestHash != null && !stored.requestHash().equals(requestHash)) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("error", HEADER + "已用于其他请求"));
+        }
+        return ResponseEntity.status(stored.statusCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Idempotent-Replayed", "true")
+                .body(stored.body());
+    }
+
+    /**
+     * 占用幂等键，成功返回true；键已被占用或已有结果时返回false
+     */
+    private boolean claim(String scopeKey, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        // 过期但尚未清理的旧记录先删除，不影响有效期内的记录
+        jdbcTemplate.update("DELETE FROM idempotency_key WHERE scope_key = ? AND created_at < ?",
+                scopeKey, now.minusHours(ttlHours));
+        try {
+            jdbcTemplate.update("INSERT INTO idempotency_key (scope_key, request_hash, status, created_at) VALUES (?, ?, ?, ?)",
+                    scopeKey, requestHash, STATUS_IN_PROGRESS, now);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // 持有者超过租期仍未完成（进程崩溃等），接管该键；条件更新保证只有一个实例接管成功
+            int taken = jdbcTemplate.update("UPDATE idempotency_key SET created_at = ?, request_hash = ? " +
+                            "WHERE scope_key = ? AND status = ? AND created_at < ?",
+                    now, requestHash, scopeKey, STATUS_IN_PROGRESS, now.minusNanos(leaseMillis * 1_000_000));
+            return taken == 1;
+        }
+    }
+
+    /**
+     * 轮询等待其他持有者写入结果，超时或持有者失败释放了键时返回null
+     */
+    private StoredResponse awaitClaimed(String scopeKey) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMillis;
+        while (true) {
+            KeyRecord record = load(scopeKey);
+            if (record == null) {
+                return null;
+            }
+            if (STATUS_COMPLETED.equals(record.status())) {
+                return record.response();
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                return null;
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    private KeyRecord load(String scopeKey) {
+        List<KeyRecord> rows = jdbcTemplate.query(
+                "SELECT status, request_hash, status_code, response_body FROM idempotency_key " +
+                        "WHERE scope_key = ? AND created_at >= ?",
+                (rs, rowNum) -> new KeyRecord(rs.getString("status"),
+                        STATUS_COMPLETED.equals(rs.getString("status"))
+                                ? new StoredResponse(rs.getString("request_hash"), rs.getInt("status_code"),
+                                rs.getString("response_body"))
+                                : null),
+                scopeKey, LocalDateTime.now().minusHours(ttlHours));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private void complete(String scopeKey, StoredResponse stored) {
+        try {
+            jdbcTemplate.update("UPDATE idempotency_key SET status = ?, status_code = ?, response_body = ? WHERE scope_key = ?",
+                    STATUS_COMPLETED, stored.statusCode(), stored.body(), scopeKey);
+        } catch (Exception e) {
+            // 业务已经执行，记录保持处理中，重复请求在租期内返回409而不会再次执行
+            logger.error("保存幂等键响应失败: {}", scopeKey, e);
+        }
+    }
+
+    private void release(String scopeKey) {
+        try {
+            jdbcTemplate.update("DELETE FROM idempotency_key WHERE scope_key = ? AND status = ?",
+                    scopeKey, STATUS_IN_PROGRESS);
+        } catch (Exception e) {
+            logger.error("释放幂等键失败: {}", scopeKey, e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("响应序列化失败", e);
+        }
+    }
+
+    private String hash(Object request) {
+        if (request == null) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(Objects.requireNonNull(toJson(request)).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.service.ImageStorageService;
+import com.backmore.secondhand_mall.util.JsonUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * 内容寻址的图片存储
+ * 文件路径为 {blob-dir}/{sha256前两位}/{sha256}.{扩展名}，数据库中只保存URL
+ */
+@Service
+public class ImageStorageServiceImpl implements ImageStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageStorageServiceImpl.class);
+
+    private static final String DATA_URL_PREFIX = "data:";
+
+    @Value("${file.blob-dir:uploads/blobs}")
+    private String blobDir;
+
+    @Value("${file.blob-url-prefix:/uploads/blobs/}")
+    private String urlPrefix;
+
+    @Override
+    public String store(byte[] data, String contentType) {
+        if (data == null || data.length == 0) {
+            throw new IllegalArgumentException("图片内容为空");
+        }
+
+        String hash = sha256Hex(data);
+        String relativePath = hash.substring(0, 2) + "/" + hash + extensionOf(contentType, data);
+        Path target = Paths.get(blobDir).resolve(relativePath);
+
+        try {
+            // 相同内容已存在则直接复用
+            if (Files.exists(target)) {
+                logger.debug("图片已存在，复用: {}", relativePath);
+                return urlPrefix + relativePath;
+            }
+
+            Files.createDirectories(target.getParent());
+
+            // 先写临时文件再原子改名，避免并发上传时读到半个文件
+            Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+            try {
+                Files.write(temp, data);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            logger.info("图片保存成功: {} ({} bytes)", relativePath, data.length);
+            return urlPrefix + relativePath;
+        } catch (IOException e) {
+            throw new UncheckedIOException("保存图片失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String storeDataUrl(String image) {
+        if (image == null || !image.startsWith(DATA_URL_PREFIX)) {
+            return image;
+        }
+
+        // 格式: data:image/png;base64,xxxx
+        int commaIndex = image.indexOf(',');
+        if (commaIndex < 0) {
+            throw new IllegalArgumentException("图片数据格式错误");
+        }
+        String meta = image.substring(DATA_URL_PREFIX.length(), commaIndex);
+        if (!meta.endsWith(";base64")) {
+            throw new IllegalArgumentException("只支持Base64编码的图片数据");
+        }
+        String contentType = meta.substring(0, meta.length() - ";base64".length());
+
+        byte[] data;
+        try {
+            data = Base64.getMimeDecoder().decode(image.substring(commaIndex + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("图片Base64解码失败", e);
+        }
+        return store(data, contentType);
+    }
+
+    @Override
+    public List<String> storeAll(List<String> images) {
+        if (images == null) {
+            return null;
+        }
+        List<String> urls = new ArrayList<>(images.size());
+        for (String image : images) {
+            urls.add(storeDataUrl(image));
+        }
+        return urls;
+    }
+
+    @Override
+    public String storeImagesField(String images) {
+        if (images == null || images.isEmpty()) {
+            return images;
+        }
+        if (images.trim().startsWith("[")) {
+            return JsonUtil.imagesToJson(storeAll(JsonUtil.jsonToImages(images)));
+        }
+        return storeDataUrl(images);
+    }
+
+    private String sha256Hex(byte[] data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 扩展名按文件头识别，不信任客户端声明的类型；声明的类型只用来尽早拒绝非图片和SVG
+     * 静态资源按扩展名返回Content-Type，识别不出的内容不保存，避免以图片URL公开任意文件
+     */
+    private String extensionOf(String contentType, byte[] data) {
+        if (contentType != null && !contentType.isBlank()) {
+            MediaType type;
+            try {
+                type = MediaType.parseMediaType(contentType);
+            } catch (InvalidMediaTypeException e) {
+                throw new IllegalArgumentException("图片类型格式错误: " + contentType, e);
+            }
+            if (!"image".equalsIgnoreCase(type.getType())) {
+                throw new IllegalArgumentException("不支持的图片类型: " + contentType);
+            }
+            if ("svg+xml".equalsIgnoreCase(type.getSubtype())) {
+                // SVG可以内嵌脚本，作为同源静态文件公开长期缓存会造成存储型XSS，不接受
+                throw new IllegalArgumentException("不支持SVG图片");
+            }
+        }
+
+        if (startsWith(data, 0, 0xFF, 0xD8, 0xFF)) {
+            return ".jpg";
+        }
+        if (startsWith(data, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return ".png";
+        }
+        if (startsWith(data, 0, 'G', 'I', 'F', '8', '7', 'a') || startsWith(data, 0, 'G', 'I', 'F', '8', '9', 'a')) {
+            return ".gif";
+        }
+        if (startsWith(data, 0, 'R', 'I', 'F', 'F') && startsWith(data, 8, 'W', 'E', 'B', 'P')) {
+            return ".webp";
+        }
+        if (startsWith(data, 0, 'B', 'M')) {
+            return ".bmp";
+        }
+        throw new IllegalArgumentException("无法识别的图片格式，只支持JPEG、PNG、GIF、WebP和BMP");
+    }
+
+    private static boolean startsWith(byte[] data, int offset, int... magic) {
+        if (data.length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((data[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
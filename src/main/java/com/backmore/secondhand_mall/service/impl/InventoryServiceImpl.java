@@ -0,0 +1,263 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.entity.OrderItem;
+import com.backmore.secondhand_mall.entity.StockReservation;
+import com.backmore.secondhand_mall.event.OrderStatusChangedEvent;
+import com.backmore.secondhand_mall.exception.InsufficientStockException;
+import com.backmore.secondhand_mall.exception.OrderStateConflictException;
+import com.backmore.secondhand_mall.repository.ProductRepository;
+import com.backmore.secondhand_mall.repository.StockReservationRepository;
+import com.backmore.secondhand_mall.service.InventoryService;
+import com.backmore.secondhand_mall.service.OrderStateService;
+import com.backmore.secondhand_mall.service.ProductDetailService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Savepoint;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 库存扣减与预占
+ * 所有扣减都是单条件UPDATE（stock >= ?），不在Java里先读后判断，避免并发超卖
+ */
+@Service
+public class InventoryServiceImpl implements InventoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryServiceImpl.class);
+
+    private static final int EXPIRE_BATCH_SIZE = 200;
+
+    private static final String DECREMENT_STOCK_SQL = "UPDATE product SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private OrderStateService orderStateService;
+
+    @Autowired
+    private ProductDetailService productDetailService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${inventory.reservation-ttl-minutes:30}")
+    private long reservationTtlMinutes;
+
+    @Override
+    @Transactional
+    public void sell(Long productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("购买数量必须大于0");
+        }
+        if (productRepository.decrementStockAndAddSales(productId, quantity) == 0) {
+            throw new InsufficientStockException(productId);
+        }
+        productDetailService.evict(productId);
+    }
+
+    @Override
+    @Transactional
+    public List<StockReservation> reserve(Long orderId, List<OrderItem> items) {
+        Map<Long, Integer> quantities = mergeQuantities(items);
+        decrementAll(quantities);
+        return saveReservations(orderId, quantities);
+    }
+
+    // 全部商品的条件扣减作为一个JDBC批次发送，任一商品未命中即库存不足，由外层事务整体回滚
+    private void decrementAll(Map<Long, Integer> quantities) {
+        List<Object[]> args = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            args.add(new Object[]{entry.getValue(), entry.getKey(), entry.getValue()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, args);
+        int i = 0;
+        for (Long productId : quantities.keySet()) {
+            if (counts[i++] == 0) {
+                throw new InsufficientStockException(productId);
+            }
+        }
+        quantities.keySet().forEach(productDetailService::evict);
+    }
+
+    @Override
+    @Transactional
+    public boolean tryReserve(Long orderId, List<OrderItem> items) {
+        Map<Long, Integer> quantities = mergeQuantities(items);
+        // 与reserve使用同一个批次；库存不足时回滚到批次前的保存点，同一事务中其他订单的写入不受影响
+        Long missingProductId = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                decrementAll(quantities);
+            } catch (InsufficientStockException e) {
+                connection.rollback(savepoint);
+                return e.getProductId();
+            }
+            connection.releaseSavepoint(savepoint);
+            return null;
+        });
+        if (missingProductId != null) {
+            logger.info("订单库存不足, 订单ID: {}, 商品ID: {}", orderId, missingProductId);
+            return false;
+        }
+        saveReservations(orderId, quantities);
+        return true;
+    }
+
+    // 同一商品的数量合并，并按商品ID排序，保证并发下单时行锁顺序一致，避免死锁
+    private Map<Long, Integer> mergeQuantities(List<OrderItem> items) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : items) {
+            if (item.getProductId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("订单项商品或数量无效");
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private List<StockReservation> saveReservations(Long orderId, Map<Long, Integer> quantities) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(reservationTtlMinutes);
+        List<StockReservation> reservations = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            StockReservation reservation = new StockReservation();
+            reservation.setOrderId(orderId);
+            reservation.setProductId(entry.getKey());
+            reservation.setQuantity(entry.getValue());
+            reservation.setStatus(StockReservation.HELD);
+            reservation.setExpiresAt(expiresAt);
+            reservation.setCreatedAt(now);
+            reservation.setUpdatedAt(now);
+            reservations.add(reservation);
+        }
+        logger.info("订单库存预占成功, 订单ID: {}, 商品数: {}", orderId, reservations.size());
+        return stockReservationRepository.saveAll(reservations);
+    }
+
+    @Override
+    @Transactional
+    public boolean confirm(Long orderId) {
+        List<StockReservation> reservations = stockReservationRepository.findByOrderId(orderId);
+        LocalDateTime now = LocalDateTime.now();
+        boolean released = false;
+        for (StockReservation reservation : reservations) {
+            // 销量由发件箱订阅者在支付提交后异步累加
+            if (StockReservation.HELD.equals(reservation.getStatus())
+                    && stockReservationRepository.transitionFromHeld(reservation.getId(), StockReservation.CONFIRMED, now) > 0) {
+                continue;
+            }
+            if (!StockReservation.CONFIRMED.equals(reservation.getStatus())) {
+                released = true;
+            }
+        }
+        if (released) {
+            logger.warn("订单库存预占已释放，无法确认, 订单ID: {}", orderId);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public int release(Long orderId) {
+        int count = 0;
+        LocalDateTime now = LocalDateTime.now();
+        for (StockReservation reservation : stockReservationRepository.findByOrderIdAndStatus(orderId, StockReservation.HELD)) {
+            if (releaseOne(reservation, now)) {
+                count++;
+            }
+        }
+        if (count > 0) {
+            logger.info("订单库存预占已释放, 订单ID: {}, 记录数: {}", orderId, count);
+        }
+        return count;
+    }
+
+    /**
+     * 随订单状态迁移确认或释放预占，在迁移所在事务中执行，失败时迁移一起回滚
+     */
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        switch (event.getTransition()) {
+            case PAY -> {
+                if (!confirm(event.getOrderId())) {
+                    throw new OrderStateConflictException("订单已超时，库存已释放");
+                }
+            }
+            case CANCEL, EXPIRE -> release(event.getOrderId());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * 兜底清理：超时订单平时由时间轮取消，这里只低频处理遗漏的预占（如时间轮登记前进程退出）
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${inventory.expire-sweep-interval-ms:60000}")
+    public int releaseExpired() {
+        int total = 0;
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            List<StockReservation> expired = stockReservationRepository.findExpired(now, PageRequest.of(0, EXPIRE_BATCH_SIZE));
+            if (expired.isEmpty()) {
+                break;
+            }
+            for (StockReservation reservation : expired) {
+                // 每条预占独立事务，单条失败不影响其他
+                try {
+                    Boolean released = transactionTemplate.execute(status -> {
+                        // 待付款订单走状态机超时取消，由取消事件释放该订单的全部预占
+                        if (orderStateService.tryTransition(reservation.getOrderId(), OrderStateService.Transition.EXPIRE)) {
+                            return true;
+                        }
+                        return releaseOne(reservation, now);
+                    });
+                    if (Boolean.TRUE.equals(released)) {
+                        total++;
+                    }
+                } catch (Exception e) {
+                    logger.error("释放过期库存预占失败, 预占ID: {}", reservation.getId(), e);
+                }
+            }
+            if (expired.size() < EXPIRE_BATCH_SIZE) {
+                break;
+            }
+        }
+        if (total > 0) {
+            logger.info("已释放过期库存预占, 记录数: {}", total);
+        }
+        return total;
+    }
+
+    private boolean releaseOne(StockReservation reservation, LocalDateTime now) {
+        // 条件迁移保证同一预占只会被释放或确认一次
+        if (stockReservationRepository.transitionFromHeld(reservation.getId(), StockReservation.RELEASED, now) == 0) {
+            return false;
+        }
+        productRepository.restoreStock(reservation.getProductId(), reservation.getQuantity());
+        productDetailService.evict(reservation.getProductId());
+        return true;
+    }
+}
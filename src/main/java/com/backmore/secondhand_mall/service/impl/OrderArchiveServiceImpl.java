@@ -0,0 +1,193 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.entity.Order;
+import com.backmore.secondhand_mall.entity.OrderItem;
+import com.backmore.secondhand_mall.service.OrderArchiveService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * 订单冷热分离
+ * 超过保留期的已完成、已取消订单分批移入归档表，在线表只保留近期和进行中的订单；
+ * 只在配置的低峰时段运行，批次之间暂停，单批耗时过长时提前结束本轮，避免和业务流量争抢锁和IO
+ */
+@Service
+public class OrderArchiveServiceImpl implements OrderArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderArchiveServiceImpl.class);
+
+    private static final List<String> ARCHIVABLE_STATUSES = List.of("COMPLETED", "CANCELED");
+
+    // 显式列出归档的列，在线表加列时不会因列数或列序不一致把数据错位写入归档表
+    private static final String ORDER_COLUMNS = "id, order_number, user_id, total_price, status, shipping_address, "
+            + "payment_method, create_time, update_time";
+    private static final String ITEM_COLUMNS = "id, order_id, product_id, quantity, price, total_price, "
+            + "create_time, update_time";
+
+    private static final RowMapper<Order> ORDER_ROW_MAPPER = (rs, rowNum) -> {
+        Order order = new Order();
+        order.setId(rs.getLong("id"));
+        order.setOrderNumber(rs.getString("order_number"));
+        order.setUserId(rs.getLong("user_id"));
+        order.setTotalPrice(rs.getBigDecimal("total_price"));
+        order.setStatus(rs.getString("status"));
+        order.setShippingAddress(rs.getString("shipping_address"));
+        order.setPaymentMethod(rs.getString("payment_method"));
+        order.setCreatedAt(rs.getObject("create_time", LocalDateTime.class));
+        order.setUpdatedAt(rs.getObject("update_time", LocalDateTime.class));
+        return order;
+    };
+
+    private static final RowMapper<OrderItem> ITEM_ROW_MAPPER = (rs, rowNum) -> {
+        OrderItem item = new OrderItem();
+        item.setId(rs.getLong("id"));
+        item.setOrderId(rs.getLong("order_id"));
+        item.setProductId(rs.getLong("product_id"));
+        item.setQuantity(rs.getInt("quantity"));
+        item.setPrice(rs.getBigDecimal("price"));
+        item.setTotalPrice(rs.getBigDecimal("total_price"));
+        item.setCreatedAt(rs.getObject("create_time", LocalDateTime.class));
+        item.setUpdatedAt(rs.getObject("update_time", LocalDateTime.class));
+        return item;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${order.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${order.archive.min-age-days:180}")
+    private long minAgeDays;
+
+    @Value("${order.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${order.archive.max-batches-per-run:200}")
+    private int maxBatchesPerRun;
+
+    @Value("${order.archive.pause-ms:200}")
+    private long pauseMillis;
+
+    @Value("${order.archive.max-batch-ms:2000}")
+    private long maxBatchMillis;
+
+    @Value("${order.archive.window-start:02:00}")
+    private String windowStart;
+
+    @Value("${order.archive.window-end:06:00}")
+    private String windowEnd;
+
+    @Override
+    @Scheduled(fixedDelayString = "${order.archive.interval-ms:600000}")
+    public int archive() {
+        if (!enabled || !inWindow(LocalTime.now())) {
+            return 0;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(minAgeDays);
+        long start = System.currentTimeMillis();
+        int total = 0;
+        for (int batch = 0; batch < maxBatchesPerRun && inWindow(LocalTime.now()); batch++) {
+            long batchStart = System.currentTimeMillis();
+            Integer moved = transactionTemplate.execute(status -> moveBatch(cutoff));
+            long elapsed = System.currentTimeMillis() - batchStart;
+            total += moved != null ? moved : 0;
+            if (moved == null || moved < batchSize) {
+                break;
+            }
+            // 单批耗时过长说明数据库正忙，本轮到此为止
+            if (elapsed > maxBatchMillis) {
+                logger.info("订单归档单批耗时{}ms，超过阈值，提前结束本轮", elapsed);
+                break;
+            }
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (total > 0) {
+            logger.info("订单归档完成, 订单数: {}, 耗时: {}ms", total, System.currentTimeMillis() - start);
+        }
+        return total;
+    }
+
+    // 先复制到归档表再删除在线数据，同一事务内完成；复制的行数和选中的不一致时抛异常回滚，不删除在线数据
+    private int moveBatch(LocalDateTime cutoff) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("statuses", ARCHIVABLE_STATUSES)
+                .addValue("cutoff", cutoff)
+                .addValue("limit", batchSize);
+        List<Long> ids = namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM orders WHERE status IN (:statuses) AND update_time < :cutoff " +
+                "ORDER BY id LIMIT :limit FOR UPDATE", params, Long.class);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource idParams = new MapSqlParameterSource("ids", ids);
+        Integer itemCount = namedParameterJdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_items WHERE order_id IN (:ids) FOR UPDATE", idParams, Integer.class);
+        int archivedOrders = namedParameterJdbcTemplate.update(
+                "INSERT INTO orders_archive (" + ORDER_COLUMNS + ") SELECT " + ORDER_COLUMNS
+                        + " FROM orders WHERE id IN (:ids)", idParams);
+        int archivedItems = namedParameterJdbcTemplate.update(
+                "INSERT INTO order_items_archive (" + ITEM_COLUMNS + ") SELECT " + ITEM_COLUMNS
+                        + " FROM order_items WHERE order_id IN (:ids)", idParams);
+        if (archivedOrders != ids.size() || itemCount == null || archivedItems != itemCount) {
+            throw new IllegalStateException("订单归档行数不一致, 订单: " + archivedOrders + "/" + ids.size()
+                    + ", 订单项: " + archivedItems + "/" + itemCount);
+        }
+        namedParameterJdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (:ids)", idParams);
+        namedParameterJdbcTemplate.update("DELETE FROM orders WHERE id IN (:ids)", idParams);
+        return ids.size();
+    }
+
+    private boolean inWindow(LocalTime now) {
+        LocalTime start = LocalTime.parse(windowStart);
+        LocalTime end = LocalTime.parse(windowEnd);
+        if (start.equals(end)) {
+            return true;
+        }
+        // 支持跨零点的时段，如22:00-06:00
+        return start.isBefore(end)
+                ? !now.isBefore(start) && now.isBefore(end)
+                : !now.isBefore(start) || now.isBefore(end);
+    }
+
+    @Override
+    public Order findArchivedOrder(Long orderId, boolean includeItems) {
+        List<Order> orders = jdbcTemplate.query("SELECT " + ORDER_COLUMNS + " FROM orders_archive WHERE id = ?", ORDER_ROW_MAPPER, orderId);
+        if (orders.isEmpty()) {
+            return null;
+        }
+        Order order = orders.get(0);
+        order.setItems(includeItems ? findArchivedItems(orderId) : null);
+        return order;
+    }
+
+    @Override
+    public List<OrderItem> findArchivedItems(Long orderId) {
+        return jdbcTemplate.query("SELECT " + ITEM_COLUMNS + " FROM order_items_archive WHERE order_id = ? ORDER BY id",
+                ITEM_ROW_MAPPER, orderId);
+    }
+}
@@ -0,0 +1,226 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.service.OrderExportService;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单流式导出
+ * 使用只读、只进的JDBC游标，MySQL驱动在fetchSize为Integer.MIN_VALUE时逐行从服务器读取，不会把结果集整体加载到内存
+ * 已完成和已取消的订单会被归档任务移入归档表，默认和在线表UNION ALL一起导出
+ */
+@Service
+public class OrderExportServiceImpl implements OrderExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportServiceImpl.class);
+
+    private static final String[] COLUMNS = {
+            "id", "orderNumber", "userId", "totalPrice", "status",
+            "shippingAddress", "paymentMethod", "createdAt", "updatedAt"
+    };
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public long export(Format format, LocalDateTime from, LocalDateTime to, List<String> statuses,
+                       boolean includeArchived, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        appendSelect(sql, params, "orders", from, to, statuses);
+        if (includeArchived) {
+            // 同一条语句读取在线表和归档表，一致性读下归档任务正在搬移的订单不会重复也不会遗漏
+            sql.insert(0, '(').append(") UNION ALL (");
+            appendSelect(sql, params, "orders_archive", from, to, statuses);
+            sql.append(')');
+        }
+        sql.append(" ORDER BY id");
+
+        RowWriter writer = format == Format.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+        long[] count = {0};
+        long start = System.currentTimeMillis();
+        try {
+            writer.begin();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(Integer.MIN_VALUE);
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                return ps;
+            }, (ResultSet rs) -> {
+                try {
+                    writer.write(rs);
+                    count[0]++;
+                } catch (IOException e) {
+                    // 客户端断开时中止查询
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.end();
+        } catch (UncheckedIOException e) {
+            logger.warn("订单导出中断, 已导出: {} 行", count[0]);
+            throw e.getCause();
+        }
+        logger.info("订单导出完成, 格式: {}, 行数: {}, 耗时: {}ms", format, count[0], System.currentTimeMillis() - start);
+        return count[0];
+    }
+
+    private static void appendSelect(StringBuilder sql, List<Object> params, String table,
+                                     LocalDateTime from, LocalDateTime to, List<String> statuses) {
+        sql.append("SELECT id, order_number, user_id, total_price, status, " +
+                "shipping_address, payment_method, create_time, update_time FROM ").append(table).append(" WHERE 1 = 1");
+        if (from != null) {
+            sql.append(" AND create_time >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND create_time < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        if (statuses != null && !statuses.isEmpty()) {
+            sql.append(" AND status IN (").append(String.join(", ", statuses.stream().map(s -> "?").toList())).append(")");
+            params.addAll(statuses);
+        }
+    }
+
+    private interface RowWriter {
+        void begin() throws IOException;
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void end() throws IOException;
+    }
+
+    /**
+     * 每行一个JSON对象
+     */
+    private static class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField(COLUMNS[0], rs.getLong(1));
+            generator.writeStringField(COLUMNS[1], rs.getString(2));
+            generator.writeNumberField(COLUMNS[2], rs.getLong(3));
+            BigDecimal totalPrice = rs.getBigDecimal(4);
+            if (totalPrice != null) {
+                generator.writeNumberField(COLUMNS[3], totalPrice);
+            } else {
+                generator.writeNullField(COLUMNS[3]);
+            }
+            generator.writeStringField(COLUMNS[4], rs.getString(5));
+            generator.writeStringField(COLUMNS[5], rs.getString(6));
+            generator.writeStringField(COLUMNS[6], rs.getString(7));
+            generator.writeStringField(COLUMNS[7], formatTime(rs.getTimestamp(8)));
+            generator.writeStringField(COLUMNS[8], formatTime(rs.getTimestamp(9)));
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void end() throws IOException {
+            generator.writeRaw('\n');
+            generator.flush();
+        }
+    }
+
+    /**
+     * CSV格式，带UTF-8 BOM便于Excel直接打开
+     */
+    private static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out) {
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write('\uFEFF');
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            writer.write(Long.toString(rs.getLong(1)));
+            writer.write(',');
+            writer.write(escape(rs.getString(2)));
+            writer.write(',');
+            writer.write(Long.toString(rs.getLong(3)));
+            writer.write(',');
+            BigDecimal totalPrice = rs.getBigDecimal(4);
+            writer.write(totalPrice != null ? totalPrice.toPlainString() : "");
+            writer.write(',');
+            writer.write(escape(rs.getString(5)));
+            writer.write(',');
+            writer.write(escape(rs.getString(6)));
+            writer.write(',');
+            writer.write(escape(rs.getString(7)));
+            writer.write(',');
+            writer.write(escape(formatTime(rs.getTimestamp(8))));
+            writer.write(',');
+            writer.write(escape(formatTime(rs.getTimestamp(9))));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void end() throws IOException {
+            writer.flush();
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            // 以公式字符开头的文本加单引号前缀，防止收货地址等用户输入在表格软件中被当作公式执行
+            if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    private static String formatTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().toString() : null;
+    }
+}
@@ -1,11 +1,26 @@
 package com.backmore.secondhand_mall.service.impl;
 
+import com.backmore.secondhand_mall.dto.CursorPage;
 import com.backmore.secondhand_mall.entity.Order;
 import com.backmore.secondhand_mall.entity.OrderItem;
+import com.backmore.secondhand_mall.entity.OutboxEvent;
+import com.backmore.secondhand_mall.exception.FlashSaleConflictException;
+import com.backmore.secondhand_mall.exception.OrderNotFoundException;
 import com.backmore.secondhand_mall.repository.OrderItemRepository;
 import com.backmore.secondhand_mall.repository.OrderRepository;
+import com.backmore.secondhand_mall.service.FlashSaleService;
+import com.backmore.secondhand_mall.service.InventoryService;
+import com.backmore.secondhand_mall.service.OrderArchiveService;
 import com.backmore.secondhand_mall.service.OrderService;
+import com.backmore.secondhand_mall.service.OrderTimeoutService;
+import com.backmore.secondhand_mall.service.OutboxService;
+import com.backmore.secondhand_mall.util.CursorUtil;
+import com.backmore.secondhand_mall.util.OrderNumberGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,27 +28,74 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class OrderServiceImpl implements OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
     
+    private static final Map<String, String> STATUS_ALIASES = Map.of(
+            "PENDING", "待付款", "待付款", "PENDING",
+            "PAID", "待发货", "待发货", "PAID",
+            "SHIPPED", "已发货", "已发货", "SHIPPED");
+    
     @Autowired
     private OrderRepository orderRepository;
     
     @Autowired
     private OrderItemRepository orderItemRepository;
+    
+    @Autowired
+    private InventoryService inventoryService;
+    
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+    
+    @Autowired
+    private OrderTimeoutService orderTimeoutService;
+    
+    @Autowired
+    private OutboxService outboxService;
+    
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+    
+    @Autowired
+    private FlashSaleService flashSaleService;
 
     @Override
     @Transactional
     public Order createOrder(Order order) {
+        // 秒杀商品的库存已预载为内存令牌，普通下单再扣数据库库存会让已抢到的用户落库失败
+        if (order.getItems() != null) {
+            for (OrderItem item : order.getItems()) {
+                if (item.getProductId() != null && flashSaleService.isEnabled(item.getProductId())) {
+                    throw new FlashSaleConflictException(item.getProductId());
+                }
+            }
+        }
+        return saveOrder(order, true);
+    }
+
+    @Override
+    @Transactional
+    public Order createOrderIfInStock(Order order) {
+        return saveOrder(order, false);
+    }
+
+    /**
+     * 保存订单和订单项并预占库存
+     * failIfOutOfStock为false时库存不足不抛异常，删除刚写入的订单并返回null
+     */
+    private Order saveOrder(Order order, boolean failIfOutOfStock) {
         // 生成唯一订单号
-        String orderNumber = generateOrderNumber();
+        String orderNumber = orderNumberGenerator.nextOrderNumber();
         order.setOrderNumber(orderNumber);
         
         // 保存订单项列表（暂时）
@@ -61,8 +123,6 @@ public class OrderServiceImpl implements OrderService {
             
             // 如果有订单项，处理并保存
             if (items != null && !items.isEmpty()) {
-                List<OrderItem> savedItems = new ArrayList<>();
-                
                 for (OrderItem item : items) {
                     // 设置订单ID
                     item.setOrderId(savedOrder.getId());
@@ -77,17 +137,38 @@ public class OrderServiceImpl implements OrderService {
                         item.setTotalPrice(totalPrice);
                     }
                     
-                    // 保存订单项
-                    OrderItem savedItem = orderItemRepository.save(item);
-                    savedItems.add(savedItem);
-                    
-                    logger.info("已保存订单项: 产品ID={}, 数量={}", item.getProductId(), item.getQuantity());
                 }
                 
+                // 批量保存订单项，提交时和订单一起按JDBC批量插入
+                // 新实体persist后即为受管对象，saveAll返回的就是传入的这些实例
+                orderItemRepository.saveAll(items);
+                List<OrderItem> savedItems = items;
+                logger.info("已保存订单项, 数量: {}", savedItems.size());
+                
                 // 设置保存后的订单项列表
                 savedOrder.setItems(savedItems);
+                
+                // 预占库存，任一商品库存不足时整单回滚
+                if (failIfOutOfStock) {
+                    inventoryService.reserve(savedOrder.getId(), savedItems);
+                } else if (!inventoryService.tryReserve(savedOrder.getId(), savedItems)) {
+                    orderItemRepository.deleteAll(savedItems);
+                    orderRepository.delete(savedOrder);
+                    logger.info("库存不足，订单未创建，订单号: {}", orderNumber);
+                    return null;
+                }
             }
             
+            // 写入发件箱，和订单在同一事务提交
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("orderNumber", savedOrder.getOrderNumber());
+            payload.put("userId", savedOrder.getUserId());
+            payload.put("totalPrice", savedOrder.getTotalPrice());
+            outboxService.append(OutboxEvent.ORDER_CREATED, savedOrder.getId(), payload);
+            
+            // 登记支付截止时间，超时未支付自动取消
+            orderTimeoutService.register(savedOrder.getId(), now);
+            
             logger.info("订单创建成功: {}", savedOrder.getId());
             return savedOrder;
         } catch (Exception e) {
@@ -96,22 +177,6 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
-    /**
-     * 生成唯一的订单号
-     * 格式：年月日时分秒 + 4位随机数
-     */
-    private String generateOrderNumber() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
-        String dateTime = LocalDateTime.now().format(formatter);
-        
-        // 生成4位随机数
-        Random random = new Random();
-        int randomNumber = random.nextInt(10000);
-        String randomStr = String.format("%04d", randomNumber);
-        
-        return dateTime + randomStr;
-    }
-
     @Override
     public Order getOrderById(Long id) {
         return getOrderByIdWithItems(id, true);
@@ -122,6 +187,15 @@ public class OrderServiceImpl implements OrderService {
         logger.info("获取订单ID={}, 是否包含订单项={}", id, includeItems);
         Order order = orderRepository.findById(id).orElse(null);
         
+        if (order == null) {
+            // 在线表没有时查归档表，已归档的订单只读
+            order = orderArchiveService.findArchivedOrder(id, includeItems);
+            if (order != null) {
+                logger.info("从归档表获取订单: {}", id);
+                return order;
+            }
+        }
+        
         if (order != null && !includeItems) {
             // 如果不需要包含订单项，则设置为null
             order.setItems(null);
@@ -150,16 +224,86 @@ public class OrderServiceImpl implements OrderService {
             }
             logger.info("获取用户订单列表（不含订单项）成功, 共{}条记录", orders.size());
         } else {
+            attachItems(orders);
             logger.info("获取用户订单列表（含订单项）成功, 共{}条记录", orders.size());
         }
         
         return orders;
     }
     
+    @Override
+    public CursorPage<Order> getOrdersByUserIdCursor(Long userId, String cursor, int size, boolean includeItems) {
+        logger.info("游标分页获取用户ID={}的订单, cursor={}, size={}", userId, cursor, size);
+        CursorUtil.Cursor position = CursorUtil.decode(cursor);
+        Pageable limit = PageRequest.of(0, size);
+        
+        Slice<Order> slice = position == null
+                ? orderRepository.findByUserIdFirstSlice(userId, limit)
+                : orderRepository.findByUserIdAfter(userId, position.toLocalDateTime(), position.id(), limit);
+        
+        if (!includeItems) {
+            slice.getContent().forEach(order -> order.setItems(null));
+        } else {
+            attachItems(slice.getContent());
+        }
+        
+        return CursorPage.of(slice, order -> CursorUtil.encode(order.getCreatedAt(), order.getId()));
+    }
+    
+    @Override
+    public Page<Order> getOrderHistory(Long userId, List<String> statuses, int page, int size, boolean includeItems) {
+        logger.info("分页获取用户ID={}的订单, 状态={}, page={}, size={}", userId, statuses, page, size);
+        Pageable pageable = PageRequest.of(page, size);
+        
+        Page<Order> orders = statuses == null || statuses.isEmpty()
+                ? orderRepository.findPageByUserId(userId, pageable)
+                : orderRepository.findPageByUserIdAndStatusIn(userId, expandStatusAliases(statuses), pageable);
+        
+        if (includeItems) {
+            attachItems(orders.getContent());
+        } else {
+            orders.getContent().forEach(order -> order.setItems(null));
+        }
+        return orders;
+    }
+    
+    /**
+     * 用一条IN查询加载一批订单的订单项，代替逐个订单触发懒加载
+     */
+    private void attachItems(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<Long> orderIds = orders.stream().map(Order::getId).toList();
+        Map<Long, List<OrderItem>> itemsByOrderId = new HashMap<>();
+        for (OrderItem item : orderItemRepository.findByOrderIdIn(orderIds)) {
+            itemsByOrderId.computeIfAbsent(item.getOrderId(), k -> new ArrayList<>()).add(item);
+        }
+        for (Order order : orders) {
+            order.setItems(itemsByOrderId.getOrDefault(order.getId(), new ArrayList<>()));
+        }
+    }
+    
+    // 历史数据中部分状态保存为中文，按英文状态筛选时一并匹配
+    private static Set<String> expandStatusAliases(List<String> statuses) {
+        Set<String> expanded = new HashSet<>();
+        for (String status : statuses) {
+            expanded.add(status);
+            String alias = STATUS_ALIASES.get(status);
+            if (alias != null) {
+                expanded.add(alias);
+            }
+        }
+        return expanded;
+    }
+    
     @Override
     public List<OrderItem> getOrderItems(Long orderId) {
         logger.info("获取订单ID={}的订单项列表", orderId);
         List<OrderItem> items = orderItemRepository.findByOrderId(orderId);
+        if (items.isEmpty()) {
+            items = orderArchiveService.findArchivedItems(orderId);
+        }
         logger.info("获取订单项列表成功, 共{}条记录", items.size());
         return items;
     }
@@ -170,8 +314,15 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional
     public Order updateOrder(Order order) {
-        return orderRepository.save(order);
+        // 状态只能经由OrderStateService迁移，这里只按列更新可编辑字段，不合并客户端提交的整个实体
+        int updated = order.getId() == null ? 0 : orderRepository.updateEditableFields(
+                order.getId(), order.getShippingAddress(), order.getPaymentMethod(), LocalDateTime.now());
+        if (updated == 0) {
+            throw new OrderNotFoundException(order.getId());
+        }
+        return orderRepository.findById(order.getId()).orElseThrow(() -> new OrderNotFoundException(order.getId()));
     }
 
     @Override
@@ -179,6 +330,9 @@ public class OrderServiceImpl implements OrderService {
     public void deleteOrder(Long id) {
         logger.info("删除订单及其订单项，订单ID={}", id);
         try {
+            // 未支付订单的库存预占先归还
+            inventoryService.release(id);
+            
             // 先删除关联的订单项
             orderItemRepository.deleteByOrderId(id);
             logger.info("订单项已删除，订单ID={}", id);
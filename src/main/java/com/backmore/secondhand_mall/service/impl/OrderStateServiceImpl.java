@@ -0,0 +1,95 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.entity.Order;
+import com.backmore.secondhand_mall.event.OrderStatusChangedEvent;
+import com.backmore.secondhand_mall.exception.OrderNotFoundException;
+import com.backmore.secondhand_mall.exception.OrderStateConflictException;
+import com.backmore.secondhand_mall.repository.OrderRepository;
+import com.backmore.secondhand_mall.service.OrderStateService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Service
+public class OrderStateServiceImpl implements OrderStateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStateServiceImpl.class);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    @Transactional
+    public Order transition(Long orderId, Transition transition) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = orderRepository.transitionStatus(orderId, transition.getSources(), transition.getTarget(), now);
+        return afterUpdate(orderId, transition, updated, now);
+    }
+
+    @Override
+    @Transactional
+    public Order pay(Long orderId, String paymentMethod) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = orderRepository.transitionStatusWithPayment(
+                orderId, Transition.PAY.getSources(), Transition.PAY.getTarget(), paymentMethod, now);
+        return afterUpdate(orderId, Transition.PAY, updated, now);
+    }
+
+    @Override
+    @Transactional
+    public boolean tryTransition(Long orderId, Transition transition) {
+        LocalDateTime now = LocalDateTime.now();
+        if (orderRepository.transitionStatus(orderId, transition.getSources(), transition.getTarget(), now) == 0) {
+            return false;
+        }
+        publish(orderId, transition, now);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public List<Long> tryTransitionAll(Collection<Long> orderIds, Transition transition) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        List<Long> locked = orderRepository.lockIdsInStatus(orderIds, transition.getSources());
+        if (locked.isEmpty()) {
+            return locked;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        orderRepository.transitionStatusIn(locked, transition.getSources(), transition.getTarget(), now);
+        for (Long orderId : locked) {
+            publish(orderId, transition, now);
+        }
+        return locked;
+    }
+
+    private Order afterUpdate(Long orderId, Transition transition, int updated, LocalDateTime now) {
+        if (updated == 0) {
+            // 只有失败时才查询，用来区分订单不存在和状态冲突
+            if (!orderRepository.existsById(orderId)) {
+                throw new OrderNotFoundException(orderId);
+            }
+            logger.warn("订单状态迁移冲突, 订单ID: {}, 操作: {}", orderId, transition);
+            throw new OrderStateConflictException(transition.getConflictMessage());
+        }
+        publish(orderId, transition, now);
+        return orderRepository.findById(orderId).orElseThrow(() -> new OrderNotFoundException(orderId));
+    }
+
+    private void publish(Long orderId, Transition transition, LocalDateTime now) {
+        logger.info("订单状态已变更, 订单ID: {}, 操作: {}, 新状态: {}", orderId, transition, transition.getTarget());
+        // 同步发布，监听器抛出的异常会回滚本次迁移
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, transition, now));
+    }
+}
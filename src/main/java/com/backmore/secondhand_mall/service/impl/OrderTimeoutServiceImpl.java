@@ -0,0 +1,176 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.event.OrderStatusChangedEvent;
+import com.backmore.secondhand_mall.repository.OrderRepository;
+import com.backmore.secondhand_mall.service.OrderStateService;
+import com.backmore.secondhand_mall.service.OrderTimeoutService;
+import com.backmore.secondhand_mall.util.HashedTimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于时间轮的未支付订单超时取消
+ * 下单时登记截止时间，启动时从数据库重建；到期后按批锁定仍待付款的订单并取消，
+ * 取消事件会释放该订单的库存预占。平时不需要定时轮询数据库
+ */
+@Service
+public class OrderTimeoutServiceImpl implements OrderTimeoutService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderTimeoutServiceImpl.class);
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderStateService orderStateService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${order.payment-timeout-minutes:30}")
+    private long paymentTimeoutMinutes;
+
+    @Value("${order.timeout.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${order.timeout.wheel-size:512}")
+    private int wheelSize;
+
+    @Value("${order.timeout.batch-size:200}")
+    private int batchSize;
+
+    @Value("${order.timeout.retry-delay-ms:10000}")
+    private long retryDelayMillis;
+
+    private final Map<Long, HashedTimingWheel.Timeout<Long>> timeouts = new ConcurrentHashMap<>();
+
+    private HashedTimingWheel<Long> wheel;
+
+    @PostConstruct
+    public void init() {
+        wheel = new HashedTimingWheel<>("order-timeout-wheel", tickMillis, wheelSize, this::expire);
+        wheel.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.stop();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    @Override
+    public void register(Long orderId, LocalDateTime createdAt) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 事务回滚的订单不需要登记
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedule(orderId, createdAt);
+                }
+            });
+        } else {
+            schedule(orderId, createdAt);
+        }
+    }
+
+    @Override
+    public int rebuild() {
+        long start = System.currentTimeMillis();
+        int count = 0;
+        Long afterId = 0L;
+        while (true) {
+            List<OrderRepository.OrderDeadline> batch = orderRepository.findDeadlinesAfter(
+                    OrderStateService.Transition.EXPIRE.getSources(), afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (OrderRepository.OrderDeadline deadline : batch) {
+                schedule(deadline.getId(), deadline.getCreatedAt());
+                count++;
+            }
+            if (batch.size() < REBUILD_BATCH_SIZE) {
+                break;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+        logger.info("订单超时时间轮重建完成, 待付款订单数: {}, 耗时: {}ms", count, System.currentTimeMillis() - start);
+        return count;
+    }
+
+    @Override
+    public int pendingCount() {
+        return timeouts.size();
+    }
+
+    /**
+     * 订单已支付或取消后不再需要超时任务
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        HashedTimingWheel.Timeout<Long> timeout = timeouts.remove(event.getOrderId());
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private void schedule(Long orderId, LocalDateTime createdAt) {
+        LocalDateTime deadline = (createdAt != null ? createdAt : LocalDateTime.now()).plusMinutes(paymentTimeoutMinutes);
+        long deadlineMillis = deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        // 重建和下单可能登记同一订单，只保留一个
+        timeouts.computeIfAbsent(orderId, id -> wheel.schedule(id, deadlineMillis));
+    }
+
+    // 在时间轮工作线程中执行，每批一个事务
+    // 取消成功的订单由状态变更事件移出登记表，已不是待付款的订单在这里移出；取消失败的重新登记，稍后重试
+    private void expire(List<Long> orderIds) {
+        int canceled = 0;
+        for (int i = 0; i < orderIds.size(); i += batchSize) {
+            List<Long> batch = orderIds.subList(i, Math.min(i + batchSize, orderIds.size()));
+            try {
+                List<Long> expired = transactionTemplate.execute(status ->
+                        orderStateService.tryTransitionAll(batch, OrderStateService.Transition.EXPIRE));
+                canceled += expired != null ? expired.size() : 0;
+                batch.forEach(timeouts::remove);
+            } catch (Exception e) {
+                // 批量失败时逐单重试，单个订单的问题不影响其他订单
+                logger.warn("批量取消超时订单失败，改为逐单处理, 订单数: {}", batch.size(), e);
+                for (Long orderId : batch) {
+                    try {
+                        if (orderStateService.tryTransition(orderId, OrderStateService.Transition.EXPIRE)) {
+                            canceled++;
+                        }
+                        timeouts.remove(orderId);
+                    } catch (Exception ex) {
+                        logger.error("取消超时订单失败, {}ms后重试, 订单ID: {}", retryDelayMillis, orderId, ex);
+                        timeouts.put(orderId, wheel.schedule(orderId, System.currentTimeMillis() + retryDelayMillis));
+                    }
+                }
+            }
+        }
+        if (canceled > 0) {
+            logger.info("已取消超时未支付订单, 到期数: {}, 取消数: {}", orderIds.size(), canceled);
+        }
+    }
+}
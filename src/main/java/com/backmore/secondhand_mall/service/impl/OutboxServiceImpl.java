@@ -0,0 +1,189 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.entity.OutboxEvent;
+import com.backmore.secondhand_mall.event.OrderStatusChangedEvent;
+import com.backmore.secondhand_mall.repository.OutboxEventRepository;
+import com.backmore.secondhand_mall.service.OutboxService;
+import com.backmore.secondhand_mall.service.OutboxSubscriber;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 事务发件箱：写入方只多一条INSERT，副作用由后台转发器异步、可靠地执行
+ * 每个订阅者的处理和它的消费记录（outbox_consumption）在同一事务提交，
+ * 重试或重启后重复投递的事件会因消费记录已存在而跳过
+ */
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxServiceImpl.class);
+
+    private static final String CONSUME_SQL =
+            "INSERT IGNORE INTO outbox_consumption (event_id, subscriber, consumed_at) VALUES (?, ?, ?)";
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    private List<OutboxSubscriber> subscribers = new ArrayList<>();
+
+    @Value("${outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.backoff-base-ms:1000}")
+    private long backoffBaseMillis;
+
+    @Value("${outbox.backoff-max-ms:600000}")
+    private long backoffMaxMillis;
+
+    @Value("${outbox.retention-days:7}")
+    private long retentionDays;
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String eventType, Long aggregateId, Object payload) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(eventType);
+        event.setAggregateId(aggregateId);
+        event.setPayload(toJson(payload));
+        event.setStatus(OutboxEvent.PENDING);
+        event.setAttempts(0);
+        event.setNextAttemptAt(now);
+        event.setCreatedAt(now);
+        outboxEventRepository.save(event);
+    }
+
+    /**
+     * 订单状态迁移写入发件箱，和迁移在同一事务中
+     */
+    @EventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("status", event.getStatus());
+        payload.put("occurredAt", event.getOccurredAt());
+        append(OutboxEvent.orderTransitionType(event.getTransition().name()), event.getOrderId(), payload);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${outbox.relay-interval-ms:1000}")
+    public int relay() {
+        int processed = 0;
+        while (true) {
+            List<OutboxEvent> batch = outboxEventRepository.findDue(LocalDateTime.now(), PageRequest.of(0, batchSize));
+            for (OutboxEvent event : batch) {
+                if (dispatch(event)) {
+                    processed++;
+                }
+            }
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+        return processed;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${outbox.purge-interval-ms:3600000}")
+    @Transactional
+    public int purgeProcessed() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        int deleted = outboxEventRepository.deleteProcessedBefore(before);
+        jdbcTemplate.update("DELETE FROM outbox_consumption WHERE consumed_at < ?", before);
+        if (deleted > 0) {
+            logger.info("已清理发件箱历史事件, 数量: {}", deleted);
+        }
+        return deleted;
+    }
+
+    private boolean dispatch(OutboxEvent event) {
+        Exception failure = null;
+        for (OutboxSubscriber subscriber : subscribers) {
+            if (!subscriber.supports(event.getEventType())) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    // 消费记录已存在说明之前已成功处理过，跳过
+                    if (jdbcTemplate.update(CONSUME_SQL, event.getId(), subscriber.name(), LocalDateTime.now()) > 0) {
+                        subscriber.handle(event);
+                    }
+                });
+            } catch (Exception e) {
+                logger.warn("发件箱事件处理失败, 事件ID: {}, 类型: {}, 订阅者: {}",
+                        event.getId(), event.getEventType(), subscriber.name(), e);
+                failure = e;
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (failure == null) {
+            event.setStatus(OutboxEvent.PROCESSED);
+            event.setProcessedAt(now);
+            event.setLastError(null);
+        } else {
+            int attempts = event.getAttempts() + 1;
+            event.setAttempts(attempts);
+            event.setLastError(truncate(failure.getMessage()));
+            if (attempts >= maxAttempts) {
+                event.setStatus(OutboxEvent.FAILED);
+                logger.error("发件箱事件重试次数用尽, 事件ID: {}, 类型: {}", event.getId(), event.getEventType());
+            } else {
+                event.setNextAttemptAt(now.plusNanos(backoffMillis(attempts) * 1_000_000));
+            }
+        }
+        outboxEventRepository.save(event);
+        return failure == null;
+    }
+
+    // 指数退避：base * 2^(attempts-1)，不超过上限
+    private long backoffMillis(int attempts) {
+        long delay = backoffBaseMillis << Math.min(attempts - 1, 30);
+        return delay <= 0 ? backoffMaxMillis : Math.min(delay, backoffMaxMillis);
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("发件箱事件序列化失败", e);
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+}
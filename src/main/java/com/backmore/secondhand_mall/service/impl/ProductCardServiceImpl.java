@@ -0,0 +1,79 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.dto.ProductCardDTO;
+import com.backmore.secondhand_mall.repository.ProductRepository;
+import com.backmore.secondhand_mall.service.ProductCardService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 商品卡片缓存
+ * 卡片只有列表字段，但历史商品的主图仍可能是整段Base64，按估算的字节数而不是条目数限制容量；
+ * 价格和库存变化时由ProductDetailService一并失效，过期时间兜底浏览量等不触发失效的字段
+ */
+@Service
+public class ProductCardServiceImpl implements ProductCardService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    // 对象头、数值字段和缓存条目本身的大致开销
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    @Value("${product.card-cache.max-weight-bytes:33554432}")
+    private long maxWeightBytes;
+
+    @Value("${product.card-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private Cache<Long, ProductCardDTO> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Long id, ProductCardDTO card) -> estimateBytes(card))
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    @Override
+    public Map<Long, ProductCardDTO> getCards(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        // 所有未命中的ID合并成一次查询
+        return cache.getAll(Set.copyOf(productIds), missing -> {
+            Map<Long, ProductCardDTO> loaded = new HashMap<>();
+            for (ProductCardDTO card : productRepository.findCardsByIdIn(Set.copyOf(missing))) {
+                loaded.put(card.getId(), card);
+            }
+            return loaded;
+        });
+    }
+
+    @Override
+    public void evict(Long productId) {
+        cache.invalidate(productId);
+    }
+
+    private static int estimateBytes(ProductCardDTO card) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        for (String value : new String[]{card.getName(), card.getMainImage(), card.getCondition(), card.getStatus()}) {
+            if (value != null) {
+                bytes += 40 + 2L * value.length();
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+}
@@ -0,0 +1,173 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.entity.Product;
+import com.backmore.secondhand_mall.entity.User;
+import com.backmore.secondhand_mall.repository.ProductRepository;
+import com.backmore.secondhand_mall.repository.UserRepository;
+import com.backmore.secondhand_mall.service.ProductCardService;
+import com.backmore.secondhand_mall.service.ProductDetailService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 商品详情缓存
+ * 缓存组装好的详情视图，按估算字节数限制总容量，Caffeine使用W-TinyLFU淘汰
+ */
+@Service
+public class ProductDetailServiceImpl implements ProductDetailService {
+
+    // 每个条目的固定开销估算（Map结构、键和装箱对象）
+    private static final int ENTRY_OVERHEAD_BYTES = 1024;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductCardService productCardService;
+
+    @Value("${product.detail-cache.max-weight-bytes:67108864}")
+    private long maxWeightBytes;
+
+    @Value("${product.detail-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private Cache<Long, Map<String, Object>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Long id, Map<String, Object> detail) -> estimateBytes(detail))
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Optional<Map<String, Object>> getDetail(Long productId) {
+        // 商品不存在时加载结果为null，不会写入缓存
+        return Optional.ofNullable(cache.get(productId, this::load));
+    }
+
+    @Override
+    public void evict(Long productId) {
+        runNowAndAfterCommit(() -> {
+            cache.invalidate(productId);
+            productCardService.evict(productId);
+        });
+    }
+
+    @Override
+    public void evictBySeller(Long sellerId) {
+        runNowAndAfterCommit(() -> cache.asMap().values().removeIf(detail -> sellerId.equals(detail.get("sellerId"))));
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("evictionWeight", stats.evictionWeight());
+        result.put("averageLoadPenaltyMs", stats.averageLoadPenalty() / 1_000_000.0);
+        result.put("estimatedSize", cache.estimatedSize());
+        cache.policy().eviction().ifPresent(eviction -> {
+            result.put("weightedSizeBytes", eviction.weightedSize().orElse(0L));
+            result.put("maxWeightBytes", eviction.getMaximum());
+        });
+        return result;
+    }
+
+    /**
+     * 立即失效一次；若处于事务中，提交后再失效一次，避免并发读在提交前把旧数据重新放回缓存
+     */
+    private void runNowAndAfterCommit(Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private Map<String, Object> load(Long productId) {
+        Optional<Product> productOpt = productRepository.findById(productId);
+        if (productOpt.isEmpty()) {
+            return null;
+        }
+        Product product = productOpt.get();
+
+        Map<String, Object> detail = new HashMap<>();
+        detail.put("id", product.getId());
+        detail.put("name", product.getName());
+        detail.put("description", product.getDescription());
+        detail.put("price", product.getPrice());
+        detail.put("originalPrice", product.getOriginalPrice());
+        detail.put("categoryId", product.getCategoryId());
+        detail.put("stock", product.getStock());
+        detail.put("mainImage", product.getMainImage());
+        detail.put("images", product.getImages());
+        detail.put("status", product.getStatus());
+        detail.put("sellerId", product.getSellerId());
+        detail.put("brand", product.getBrand());
+        detail.put("condition", product.getCondition());
+        detail.put("usedDuration", product.getUsedDuration());
+        detail.put("purchaseDate", product.getPurchaseDate());
+        detail.put("faceToFace", product.getFaceToFace());
+        detail.put("delivery", product.getDelivery());
+        detail.put("faceToFaceLocation", product.getFaceToFaceLocation());
+        detail.put("createTime", product.getCreateTime());
+        detail.put("updateTime", product.getUpdateTime());
+
+        // 添加卖家信息
+        try {
+            Optional<User> sellerOpt = userRepository.findById(product.getSellerId());
+            if (sellerOpt.isPresent()) {
+                User seller = sellerOpt.get();
+                detail.put("seller", seller.getUsername());
+                detail.put("sellerAvatar", seller.getAvatar());
+            } else {
+                detail.put("seller", "用户" + product.getSellerId());
+            }
+        } catch (Exception e) {
+            detail.put("seller", "用户" + product.getSellerId());
+        }
+
+        return Collections.unmodifiableMap(detail);
+    }
+
+    // 按字符串长度估算占用，图片和描述是主要部分
+    private static int estimateBytes(Map<String, Object> detail) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        for (Object value : detail.values()) {
+            if (value instanceof String) {
+                bytes += 40 + 2L * ((String) value).length();
+            } else if (value != null) {
+                bytes += 24;
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+}
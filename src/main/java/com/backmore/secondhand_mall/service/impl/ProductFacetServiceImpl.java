@@ -0,0 +1,84 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.dto.ProductIndexDocument;
+import com.backmore.secondhand_mall.entity.Product;
+import com.backmore.secondhand_mall.repository.ProductRepository;
+import com.backmore.secondhand_mall.service.ProductFacetService;
+import com.backmore.secondhand_mall.util.ProductFacetIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * 商品分面筛选
+ * 启动时从数据库加载全部商品的位图，之后随商品增删改增量维护
+ */
+@Service
+public class ProductFacetServiceImpl implements ProductFacetService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetServiceImpl.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final RebuildableProductIndex<ProductFacetIndex> index =
+            new RebuildableProductIndex<>(ProductFacetIndex::new, this::applyTo);
+
+    /**
+     * 启动后在后台线程构建位图，不阻塞应用启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        Thread thread = new Thread(this::rebuild, "product-facet-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void index(Product product) {
+        index.apply(ProductIndexDocument.fromEntity(product));
+    }
+
+    @Override
+    public void remove(Long productId) {
+        index.apply(ProductIndexDocument.removed(productId));
+    }
+
+    @Override
+    public ProductFacetIndex.Result browse(ProductFacetIndex.Query query, int offset, int limit) {
+        return index.read(current -> current.query(query, offset, limit));
+    }
+
+    @Override
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            ProductFacetIndex fresh = index.rebuild(productRepository);
+            if (fresh == null) {
+                logger.info("商品分面位图正在重建，忽略本次请求");
+                return;
+            }
+            logger.info("商品分面位图重建完成, 商品数: {}, 耗时: {}ms", fresh.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("商品分面位图重建失败", e);
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return index.isReady();
+    }
+
+    private void applyTo(ProductFacetIndex target, ProductIndexDocument document) {
+        // 下架商品仍保留在位图中，由状态位图过滤
+        if (document.isDeleted()) {
+            target.remove(document.getId());
+            return;
+        }
+        target.put(document.getId(), new ProductFacetIndex.Entry(document.getCategoryId(), document.getCondition(),
+                document.getPrice(), document.getFaceToFace(), document.getDelivery(), document.getStatus()));
+    }
+}
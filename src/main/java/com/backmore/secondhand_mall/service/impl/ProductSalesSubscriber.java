@@ -0,0 +1,54 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.entity.OrderItem;
+import com.backmore.secondhand_mall.entity.OutboxEvent;
+import com.backmore.secondhand_mall.repository.OrderItemRepository;
+import com.backmore.secondhand_mall.repository.ProductRepository;
+import com.backmore.secondhand_mall.service.OrderStateService;
+import com.backmore.secondhand_mall.service.OutboxSubscriber;
+import com.backmore.secondhand_mall.service.ProductDetailService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 订单支付后累加商品销量并使商品详情缓存失效
+ */
+@Component
+public class ProductSalesSubscriber implements OutboxSubscriber {
+
+    private static final String PAY_EVENT = OutboxEvent.orderTransitionType(OrderStateService.Transition.PAY.name());
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductDetailService productDetailService;
+
+    @Override
+    public String name() {
+        return "product-sales";
+    }
+
+    @Override
+    public boolean supports(String eventType) {
+        return PAY_EVENT.equals(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : orderItemRepository.findByOrderId(event.getAggregateId())) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        quantities.forEach((productId, quantity) -> {
+            productRepository.addSales(productId, quantity);
+            productDetailService.evict(productId);
+        });
+    }
+}
@@ -0,0 +1,123 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.dto.ProductIndexDocument;
+import com.backmore.secondhand_mall.entity.Product;
+import com.backmore.secondhand_mall.repository.ProductRepository;
+import com.backmore.secondhand_mall.service.ProductSearchService;
+import com.backmore.secondhand_mall.util.Bm25Index;
+import com.backmore.secondhand_mall.util.SearchTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 内存商品搜索
+ * 只索引上架商品的名称、品牌和描述，名称和品牌的词频加权
+ */
+@Service
+public class ProductSearchServiceImpl implements ProductSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchServiceImpl.class);
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int MIN_TOMBSTONES_FOR_COMPACTION = 10000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final RebuildableProductIndex<Bm25Index> index =
+            new RebuildableProductIndex<>(Bm25Index::new, this::applyTo);
+
+    /**
+     * 启动后在后台线程重建索引，不阻塞应用启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuildAsync();
+    }
+
+    @Override
+    public void index(Product product) {
+        apply(ProductIndexDocument.fromEntity(product));
+    }
+
+    @Override
+    public void remove(Long productId) {
+        apply(ProductIndexDocument.removed(productId));
+    }
+
+    @Override
+    public Bm25Index.SearchHits search(String keyword, int offset, int limit) {
+        List<String> terms = SearchTokenizer.tokenizeForQuery(keyword);
+        return index.read(current -> current.search(terms, offset, limit));
+    }
+
+    @Override
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            Bm25Index fresh = index.rebuild(productRepository);
+            if (fresh == null) {
+                logger.info("商品索引正在重建，忽略本次请求");
+                return;
+            }
+            logger.info("商品索引重建完成, 文档数: {}, 耗时: {}ms", fresh.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("商品索引重建失败", e);
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return index.isReady();
+    }
+
+    private void apply(ProductIndexDocument document) {
+        boolean needCompaction = index.apply(document,
+                current -> current.deletedCount() > Math.max(MIN_TOMBSTONES_FOR_COMPACTION, current.size()));
+
+        // 墓碑多于有效文档时整体重建，回收空间
+        if (needCompaction) {
+            rebuildAsync();
+        }
+    }
+
+    private void applyTo(Bm25Index target, ProductIndexDocument document) {
+        if (!Boolean.TRUE.equals(document.getStatus())) {
+            target.remove(document.getId());
+            return;
+        }
+
+        Map<String, Integer> termFreqs = new HashMap<>();
+        int length = addTerms(termFreqs, document.getName(), NAME_WEIGHT)
+                + addTerms(termFreqs, document.getBrand(), BRAND_WEIGHT)
+                + addTerms(termFreqs, document.getDescription(), DESCRIPTION_WEIGHT);
+        target.add(document.getId(), termFreqs, length);
+    }
+
+    private int addTerms(Map<String, Integer> termFreqs, String text, int weight) {
+        List<String> tokens = SearchTokenizer.tokenizeForIndex(text);
+        for (String token : tokens) {
+            termFreqs.merge(token, weight, Integer::sum);
+        }
+        return tokens.size() * weight;
+    }
+
+    private void rebuildAsync() {
+        if (index.isRebuilding()) {
+            return;
+        }
+        Thread thread = new Thread(this::rebuild, "product-search-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
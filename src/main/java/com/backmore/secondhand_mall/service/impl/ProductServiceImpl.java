@@ -1,18 +1,35 @@
 package com.backmore.secondhand_mall.service.impl;
 
+import com.backmore.secondhand_mall.dto.CursorPage;
+import com.backmore.secondhand_mall.dto.ProductCardDTO;
 import com.backmore.secondhand_mall.dto.ProductRequest;
 import com.backmore.secondhand_mall.entity.Product;
 import com.backmore.secondhand_mall.repository.ProductRepository;
+import com.backmore.secondhand_mall.service.ImageStorageService;
+import com.backmore.secondhand_mall.service.InventoryService;
+import com.backmore.secondhand_mall.service.ProductCardService;
+import com.backmore.secondhand_mall.service.ProductDetailService;
+import com.backmore.secondhand_mall.service.ProductFacetService;
+import com.backmore.secondhand_mall.service.ProductSearchService;
 import com.backmore.secondhand_mall.service.ProductService;
+import com.backmore.secondhand_mall.service.ProductViewService;
+import com.backmore.secondhand_mall.util.CursorUtil;
 import com.backmore.secondhand_mall.util.JsonUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -21,8 +38,32 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductFacetService productFacetService;
+
+    @Autowired
+    private ProductViewService productViewService;
+
+    @Autowired
+    private ProductDetailService productDetailService;
+
+    @Autowired
+    private ProductCardService productCardService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
     @Override
     public Product save(Product product) {
+        if (product.getCreateTime() == null) {
+            product.setCreateTime(new Date()); // create_time非空，游标分页依赖它排序
+        }
         return productRepository.save(product);
     }
     
@@ -47,13 +88,15 @@ public class ProductServiceImpl implements ProductService {
         product.setDelivery(request.getDelivery());
         product.setFaceToFaceLocation(request.getFaceToFaceLocation());
         
-        // 设置图片 - 支持Base64格式
+        // 设置图片 - Base64图片先落盘，数据库只保存URL
         if (request.getImages() != null && !request.getImages().isEmpty()) {
+            List<String> imageUrls = imageStorageService.storeAll(request.getImages());
+
             // 将图片列表转换为JSON字符串
-            product.setImages(JsonUtil.imagesToJson(request.getImages()));
+            product.setImages(JsonUtil.imagesToJson(imageUrls));
             
             // 设置主图为第一张图片
-            product.setMainImage(request.getImages().get(0));
+            product.setMainImage(imageUrls.get(0));
         }
         
         // 设置初始值
@@ -64,7 +107,12 @@ public class ProductServiceImpl implements ProductService {
         product.setUpdateTime(new Date());
         
         // 保存商品
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        afterCommit(() -> {
+            productSearchService.index(saved);
+            productFacetService.index(saved);
+        });
+        return saved;
     }
     
     @Override
@@ -93,25 +141,38 @@ public class ProductServiceImpl implements ProductService {
         product.setDelivery(request.getDelivery());
         product.setFaceToFaceLocation(request.getFaceToFaceLocation());
         
-        // 更新图片 - 支持Base64格式
+        // 更新图片 - Base64图片先落盘，数据库只保存URL
         if (request.getImages() != null && !request.getImages().isEmpty()) {
+            List<String> imageUrls = imageStorageService.storeAll(request.getImages());
+
             // 将图片列表转换为JSON字符串
-            product.setImages(JsonUtil.imagesToJson(request.getImages()));
+            product.setImages(JsonUtil.imagesToJson(imageUrls));
             
             // 更新主图为第一张图片
-            product.setMainImage(request.getImages().get(0));
+            product.setMainImage(imageUrls.get(0));
         }
         
         // 更新时间
         product.setUpdateTime(new Date());
         
         // 保存商品
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        afterCommit(() -> {
+            productSearchService.index(saved);
+            productFacetService.index(saved);
+        });
+        productDetailService.evict(saved.getId());
+        return saved;
     }
 
     @Override
     public void deleteById(Long id) {
         productRepository.deleteById(id);
+        afterCommit(() -> {
+            productSearchService.remove(id);
+            productFacetService.remove(id);
+        });
+        productDetailService.evict(id);
     }
 
     @Override
@@ -124,10 +185,33 @@ public class ProductServiceImpl implements ProductService {
         return productRepository.findAll(pageable);
     }
 
+    @Override
+    public Page<ProductCardDTO> findAllCards(Pageable pageable) {
+        return productRepository.findAllCards(pageable);
+    }
+
+    @Override
+    public CursorPage<ProductCardDTO> findCardsByCursor(String cursor, int size) {
+        CursorUtil.Cursor position = CursorUtil.decode(cursor);
+        Pageable limit = PageRequest.of(0, size);
+        
+        Slice<ProductCardDTO> slice = position == null
+                ? productRepository.findCardsFirstSlice(limit)
+                : productRepository.findCardsAfter(position.toDate(), position.id(), limit);
+        
+        return CursorPage.of(slice, card -> CursorUtil.encode(card.getCreateTime(), card.getId()));
+    }
+
     @Override
     public Product update(Product product) {
         product.setUpdateTime(new Date());
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        afterCommit(() -> {
+            productSearchService.index(saved);
+            productFacetService.index(saved);
+        });
+        productDetailService.evict(saved.getId());
+        return saved;
     }
     
     @Override
@@ -140,6 +224,29 @@ public class ProductServiceImpl implements ProductService {
         return productRepository.findBySellerId(sellerId, pageable);
     }
     
+    @Override
+    public List<ProductCardDTO> findCardsBySellerId(Long sellerId) {
+        return productRepository.findCardsBySellerId(sellerId);
+    }
+    
+    @Override
+    public List<ProductCardDTO> findCardsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        // 按传入的ID顺序返回，卡片优先读共享缓存
+        Map<Long, ProductCardDTO> cardMap = productCardService.getCards(ids);
+        List<ProductCardDTO> cards = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductCardDTO card = cardMap.get(id);
+            if (card != null) {
+                cards.add(card);
+            }
+        }
+        return cards;
+    }
+    
     @Override
     @Transactional
     public Product updateStatus(Long id, Boolean status) {
@@ -152,37 +259,25 @@ public class ProductServiceImpl implements ProductService {
         product.setStatus(status);
         product.setUpdateTime(new Date());
         
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        afterCommit(() -> {
+            productSearchService.index(saved);
+            productFacetService.index(saved);
+        });
+        productDetailService.evict(saved.getId());
+        return saved;
     }
     
     @Override
-    @Transactional
     public void incrementViews(Long id) {
-        Optional<Product> optionalProduct = productRepository.findById(id);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            product.setViews(product.getViews() + 1);
-            productRepository.save(product);
-        }
+        // 浏览量先写内存缓冲，定时批量落库
+        productViewService.recordView(id);
     }
     
     @Override
-    @Transactional
     public void incrementSales(Long id, Integer quantity) {
-        Optional<Product> optionalProduct = productRepository.findById(id);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            product.setSales(product.getSales() + quantity);
-            
-            // 减少库存
-            int newStock = product.getStock() - quantity;
-            if (newStock < 0) {
-                throw new RuntimeException("商品库存不足");
-            }
-            product.setStock(newStock);
-            
-            productRepository.save(product);
-        }
+        // 条件UPDATE同时扣库存和加销量，库存不足时抛出InsufficientStockException
+        inventoryService.sell(id, quantity);
     }
     
     @Override
@@ -190,4 +285,20 @@ public class ProductServiceImpl implements ProductService {
         Optional<Product> optionalProduct = productRepository.findById(productId);
         return optionalProduct.isPresent() && optionalProduct.get().getSellerId().equals(userId);
     }
+
+    /**
+     * 内存索引在事务提交后再更新，事务回滚时索引不会留下不存在或过期的商品；不在事务中时立即执行
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 }
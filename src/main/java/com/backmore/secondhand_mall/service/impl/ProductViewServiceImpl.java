@@ -0,0 +1,98 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.service.ProductViewService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 商品浏览量写回缓冲
+ * 浏览时只累加内存中的LongAdder，定时用 views = views + ? 批量更新，避免每次浏览都读改写整行
+ */
+@Service
+public class ProductViewServiceImpl implements ProductViewService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductViewServiceImpl.class);
+
+    private static final String UPDATE_SQL = "UPDATE product SET views = views + ? WHERE id = ?";
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordView(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        pending.computeIfAbsent(productId, k -> new LongAdder()).increment();
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${product.views.flush-interval-ms:5000}")
+    public synchronized int flush() {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta > 0) {
+                batch.add(new Object[]{delta, entry.getKey()});
+            } else if (pending.remove(entry.getKey(), entry.getValue())) {
+                // 移除空闲计数器后再检查一次，防止移除前的并发累加丢失
+                long late = entry.getValue().sum();
+                if (late > 0) {
+                    pending.computeIfAbsent(entry.getKey(), k -> new LongAdder()).add(late);
+                }
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // 每块在独立事务中提交：某块失败时只有该块及之后未执行的增量放回缓冲，已提交的块不会重复累加
+        int committed = 0;
+        try {
+            while (committed < batch.size()) {
+                List<Object[]> chunk = batch.subList(committed, Math.min(committed + BATCH_SIZE, batch.size()));
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, chunk));
+                committed += chunk.size();
+            }
+            logger.debug("浏览量写回完成, 商品数: {}", batch.size());
+        } catch (Exception e) {
+            // 写库失败时把未提交的增量放回缓冲，下次重试
+            logger.error("浏览量写回失败, 商品数: {}, 已提交: {}", batch.size(), committed, e);
+            for (Object[] args : batch.subList(committed, batch.size())) {
+                pending.computeIfAbsent((Long) args[1], k -> new LongAdder()).add((Long) args[0]);
+            }
+        }
+        return committed;
+    }
+
+    /**
+     * 应用关闭前写回剩余的浏览量
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        int flushed = flush();
+        logger.info("应用关闭前写回浏览量, 商品数: {}", flushed);
+    }
+}
@@ -0,0 +1,141 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.dto.RatingDistributionDTO;
+import com.backmore.secondhand_mall.service.RatingSummaryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 评分汇总按商品一行，增量更新用一条 INSERT ... ON DUPLICATE KEY UPDATE 原子地加减计数
+ * 读取只查一行，与商品评价数量无关
+ */
+@Service
+public class RatingSummaryServiceImpl implements RatingSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RatingSummaryServiceImpl.class);
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean rebuildRunning = new AtomicBoolean(false);
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onReviewChanged(Long productId, Integer oldRating, Integer newRating) {
+        if (productId == null || (oldRating == null && newRating == null)
+                || (oldRating != null && oldRating.equals(newRating))) {
+            return;
+        }
+        int[] histogram = new int[6];
+        int count = 0;
+        long sum = 0;
+        if (oldRating != null) {
+            histogram[oldRating]--;
+            count--;
+            sum -= oldRating;
+        }
+        if (newRating != null) {
+            histogram[newRating]++;
+            count++;
+            sum += newRating;
+        }
+        jdbcTemplate.update("INSERT INTO product_rating_summary (product_id, review_count, rating_sum, " +
+                        "rating_1, rating_2, rating_3, rating_4, rating_5, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE review_count = review_count + VALUES(review_count), " +
+                        "rating_sum = rating_sum + VALUES(rating_sum), rating_1 = rating_1 + VALUES(rating_1), " +
+                        "rating_2 = rating_2 + VALUES(rating_2), rating_3 = rating_3 + VALUES(rating_3), " +
+                        "rating_4 = rating_4 + VALUES(rating_4), rating_5 = rating_5 + VALUES(rating_5), " +
+                        "updated_at = VALUES(updated_at)",
+                productId, count, sum, histogram[1], histogram[2], histogram[3], histogram[4], histogram[5],
+                LocalDateTime.now());
+    }
+
+    @Override
+    public RatingDistributionDTO getSummary(Long productId) {
+        Map<Integer, Integer> distribution = new LinkedHashMap<>();
+        for (int star = 1; star <= 5; star++) {
+            distribution.put(star, 0);
+        }
+        RatingDistributionDTO summary = new RatingDistributionDTO(productId, 0, 0.0, distribution);
+        jdbcTemplate.query("SELECT review_count, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5 " +
+                "FROM product_rating_summary WHERE product_id = ?", rs -> {
+            int count = rs.getInt("review_count");
+            summary.setReviewCount(count);
+            summary.setAverageRating(count > 0 ? (double) rs.getLong("rating_sum") / count : 0.0);
+            for (int star = 1; star <= 5; star++) {
+                distribution.put(star, rs.getInt("rating_" + star));
+            }
+        }, productId);
+        return summary;
+    }
+
+    @Override
+    public boolean startRebuild() {
+        if (!rebuildRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.error("商品评分汇总重建失败", e);
+            } finally {
+                rebuildRunning.set(false);
+            }
+        }, "rating-summary-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    @Override
+    public boolean isRebuildRunning() {
+        return rebuildRunning.get();
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        logger.info("开始重建商品评分汇总");
+        long lastId = 0;
+        int products = 0;
+        while (true) {
+            List<Long> productIds = jdbcTemplate.queryForList(
+                    "SELECT id FROM product WHERE id > ? ORDER BY id LIMIT " + REBUILD_BATCH_SIZE, Long.class, lastId);
+            if (productIds.isEmpty()) {
+                break;
+            }
+            long from = lastId + 1;
+            long to = productIds.get(productIds.size() - 1);
+            // 按商品ID区间整段重算：先删后插放在一个事务里，期间该区间的增量更新会等待本批提交
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM product_rating_summary WHERE product_id BETWEEN ? AND ?", from, to);
+                jdbcTemplate.update("INSERT INTO product_rating_summary (product_id, review_count, rating_sum, " +
+                        "rating_1, rating_2, rating_3, rating_4, rating_5, updated_at) " +
+                        "SELECT product_id, COUNT(*), SUM(rating), SUM(rating = 1), SUM(rating = 2), SUM(rating = 3), " +
+                        "SUM(rating = 4), SUM(rating = 5), ? FROM reviews " +
+                        "WHERE product_id BETWEEN ? AND ? AND status = 'APPROVED' AND rating BETWEEN 1 AND 5 " +
+                        "GROUP BY product_id", LocalDateTime.now(), from, to);
+            });
+            products += productIds.size();
+            lastId = to;
+        }
+        logger.info("商品评分汇总重建完成, 商品数: {}, 耗时: {}ms", products, System.currentTimeMillis() - start);
+    }
+}
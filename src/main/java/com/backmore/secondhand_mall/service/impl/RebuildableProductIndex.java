@@ -0,0 +1,134 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.dto.ProductIndexDocument;
+import com.backmore.secondhand_mall.repository.ProductRepository;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 商品内存索引的公共部分：读写锁、增量更新，以及全量重建时补齐重建期间的变更
+ * 搜索索引和分面位图都基于它，只各自提供索引的创建和单个商品的写入方式
+ */
+class RebuildableProductIndex<I> {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final Supplier<I> factory;
+    private final BiConsumer<I, ProductIndexDocument> applier;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    // 以下两个字段由lock保护
+    private I index;
+    private List<ProductIndexDocument> pendingDuringRebuild;
+
+    private volatile boolean ready;
+
+    RebuildableProductIndex(Supplier<I> factory, BiConsumer<I, ProductIndexDocument> applier) {
+        this.factory = factory;
+        this.applier = applier;
+        this.index = factory.get();
+    }
+
+    <R> R read(Function<I, R> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.apply(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void apply(ProductIndexDocument document) {
+        apply(document, current -> null);
+    }
+
+    /**
+     * 写入一条变更，并在同一把写锁内用inspect读取写入后的索引状态
+     */
+    <R> R apply(ProductIndexDocument document, Function<I, R> inspect) {
+        lock.writeLock().lock();
+        try {
+            applier.accept(index, document);
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(document);
+            }
+            return inspect.apply(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 从数据库分批加载全部商品构建新索引，补上重建期间的增量变更后整体替换
+     * 已有重建在进行时直接返回null；重建失败时旧索引保持不变，异常抛给调用方
+     */
+    I rebuild(ProductRepository productRepository) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return null;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // 重建期间的增量变更先记下来，切换前补到新索引上
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            I fresh = factory.get();
+            Long afterId = 0L;
+            while (true) {
+                List<ProductIndexDocument> batch = productRepository.findIndexDocumentsAfter(
+                        afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                for (ProductIndexDocument document : batch) {
+                    applier.accept(fresh, document);
+                }
+                if (batch.size() < REBUILD_BATCH_SIZE) {
+                    break;
+                }
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (ProductIndexDocument document : pendingDuringRebuild) {
+                    applier.accept(fresh, document);
+                }
+                index = fresh;
+                ready = true;
+            } finally {
+                pendingDuringRebuild = null;
+                lock.writeLock().unlock();
+            }
+            return fresh;
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+}
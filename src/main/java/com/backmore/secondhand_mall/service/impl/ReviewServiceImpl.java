@@ -1,15 +1,22 @@
 package com.backmore.secondhand_mall.service.impl;
 
+import com.backmore.secondhand_mall.dto.CursorPage;
 import com.backmore.secondhand_mall.entity.Product;
 import com.backmore.secondhand_mall.entity.Review;
 import com.backmore.secondhand_mall.entity.User;
 import com.backmore.secondhand_mall.repository.ProductRepository;
 import com.backmore.secondhand_mall.repository.ReviewRepository;
 import com.backmore.secondhand_mall.repository.UserRepository;
+import com.backmore.secondhand_mall.service.ImageStorageService;
+import com.backmore.secondhand_mall.service.RatingSummaryService;
 import com.backmore.secondhand_mall.service.ReviewService;
+import com.backmore.secondhand_mall.util.CursorUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,6 +37,12 @@ public class ReviewServiceImpl implements ReviewService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private RatingSummaryService ratingSummaryService;
+
     @Override
     @Transactional
     public Review createReview(Review review) {
@@ -50,9 +63,13 @@ public class ReviewServiceImpl implements ReviewService {
         if (review.getStatus() == null) {
             review.setStatus("APPROVED");
         }
+
+        // 评价图片落盘，只保存URL
+        review.setImages(imageStorageService.storeImagesField(review.getImages()));
         
         // 保存评价
         Review savedReview = reviewRepository.save(review);
+        ratingSummaryService.onReviewChanged(savedReview.getProductId(), null, countedRating(savedReview));
         
         logger.info("创建评价成功: {}", savedReview.getId());
         return savedReview;
@@ -69,6 +86,18 @@ public class ReviewServiceImpl implements ReviewService {
         return reviewRepository.findByProductId(productId);
     }
 
+    @Override
+    public CursorPage<Review> getReviewsByProductIdCursor(Long productId, String cursor, int size) {
+        CursorUtil.Cursor position = CursorUtil.decode(cursor);
+        Pageable limit = PageRequest.of(0, size);
+        
+        Slice<Review> slice = position == null
+                ? reviewRepository.findByProductIdFirstSlice(productId, limit)
+                : reviewRepository.findByProductIdAfter(productId, position.toLocalDateTime(), position.id(), limit);
+        
+        return CursorPage.of(slice, review -> CursorUtil.encode(review.getCreatedAt(), review.getId()));
+    }
+
     @Override
     public List<Review> getReviewsByUserId(Long userId) {
         return reviewRepository.findByUserId(userId);
@@ -84,7 +113,7 @@ public class ReviewServiceImpl implements ReviewService {
     
     @Override
     public Double getAverageRatingByProductId(Long productId) {
-        return reviewRepository.getAverageRatingByProductId(productId);
+        return ratingSummaryService.getSummary(productId).getAverageRating();
     }
     
     @Override
@@ -95,19 +124,21 @@ public class ReviewServiceImpl implements ReviewService {
     @Override
     @Transactional
     public Review updateReview(Review review) {
-        // 检查评价是否存在
-        Review existingReview = getReviewById(review.getId());
+        // 检查评价是否存在，加锁后再取旧评分
+        Review existingReview = lockReview(review.getId());
+        Integer oldRating = countedRating(existingReview);
         
         // 更新评价内容
         existingReview.setRating(review.getRating());
         existingReview.setComment(review.getComment());
-        existingReview.setImages(review.getImages());
+        existingReview.setImages(imageStorageService.storeImagesField(review.getImages()));
         existingReview.setAnonymous(review.getAnonymous());
         existingReview.setStatus(review.getStatus());
         existingReview.setUpdatedAt(LocalDateTime.now());
         
         // 保存更新
         Review updatedReview = reviewRepository.save(existingReview);
+        ratingSummaryService.onReviewChanged(updatedReview.getProductId(), oldRating, countedRating(updatedReview));
         
         logger.info("更新评价成功: {}", updatedReview.getId());
         return updatedReview;
@@ -116,23 +147,44 @@ public class ReviewServiceImpl implements ReviewService {
     @Override
     @Transactional
     public void deleteReview(Long id) {
-        Review review = getReviewById(id);
+        Review review = lockReview(id);
         
-        reviewRepository.deleteById(id);
+        // 只有确实删除了这一行才扣减评分汇总，并发删除时后到的一方不会重复扣减
+        if (reviewRepository.deleteReviewById(id) != 1) {
+            throw new NoSuchElementException("评价不存在: " + id);
+        }
+        ratingSummaryService.onReviewChanged(review.getProductId(), countedRating(review), null);
         logger.info("删除评价成功: {}", id);
     }
     
     @Override
     @Transactional
     public void reviewModeration(Long id, String status) {
-        Review review = getReviewById(id);
+        Review review = lockReview(id);
+        Integer oldRating = countedRating(review);
         review.setStatus(status);
         review.setUpdatedAt(LocalDateTime.now());
         
         reviewRepository.save(review);
+        ratingSummaryService.onReviewChanged(review.getProductId(), oldRating, countedRating(review));
         logger.info("评价状态已更新: {}, 新状态: {}", id, status);
     }
     
+    // 加行锁读取评价：旧评分和写入在同一把锁下，并发的审核、修改、删除不会对同一评价重复计算增量
+    private Review lockReview(Long id) {
+        return reviewRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new NoSuchElementException("评价不存在: " + id));
+    }
+    
+    // 计入评分汇总的评分：只统计审核通过且评分在1-5之间的评价，不计入时返回null
+    private Integer countedRating(Review review) {
+        Integer rating = review.getRating();
+        if (!"APPROVED".equals(review.getStatus()) || rating == null || rating < 1 || rating > 5) {
+            return null;
+        }
+        return rating;
+    }
+    
     // 验证商品和用户存在性
     private void validateProductAndUser(Long productId, Long userId) {
         if (!productRepository.existsById(productId)) {
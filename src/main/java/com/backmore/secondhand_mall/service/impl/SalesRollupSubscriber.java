@@ -0,0 +1,39 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.entity.OutboxEvent;
+import com.backmore.secondhand_mall.service.OrderStateService;
+import com.backmore.secondhand_mall.service.OutboxSubscriber;
+import com.backmore.secondhand_mall.service.SellerStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * 订单完成（支付或确认收货）后计入卖家和商品的每日汇总
+ */
+@Component
+public class SalesRollupSubscriber implements OutboxSubscriber {
+
+    private static final Set<String> COMPLETED_EVENTS = Set.of(
+            OutboxEvent.orderTransitionType(OrderStateService.Transition.PAY.name()),
+            OutboxEvent.orderTransitionType(OrderStateService.Transition.CONFIRM.name()));
+
+    @Autowired
+    private SellerStatsService sellerStatsService;
+
+    @Override
+    public String name() {
+        return "sales-rollup";
+    }
+
+    @Override
+    public boolean supports(String eventType) {
+        return COMPLETED_EVENTS.contains(eventType);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        sellerStatsService.applyOrder(event.getAggregateId());
+    }
+}
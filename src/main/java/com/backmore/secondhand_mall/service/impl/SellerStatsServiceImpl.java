@@ -0,0 +1,203 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.dto.SellerStatsResponse;
+import com.backmore.secondhand_mall.service.SellerStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 卖家销售每日汇总
+ * 订单完成时由发件箱订阅者增量计入，历史数据由可续跑的回填任务补齐；
+ * 两条路径都先写sales_rollup_order，同一订单只会计入一次
+ */
+@Service
+public class SellerStatsServiceImpl implements SellerStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SellerStatsServiceImpl.class);
+
+    private static final String BACKFILL_JOB = "seller_stats_backfill";
+    private static final int BACKFILL_BATCH_SIZE = 500;
+    private static final int MAX_PRODUCTS = 100;
+
+    private static final String ORDER_LINES_SQL =
+            "SELECT DATE(o.create_time) AS stat_date, oi.product_id, p.seller_id, " +
+            "SUM(oi.quantity) AS units, SUM(oi.total_price) AS gmv " +
+            "FROM orders o JOIN order_items oi ON oi.order_id = o.id JOIN product p ON p.id = oi.product_id " +
+            "WHERE o.id = ? AND o.status = 'COMPLETED' " +
+            "GROUP BY DATE(o.create_time), oi.product_id, p.seller_id";
+
+    private static final String UPSERT_PRODUCT_SQL =
+            "INSERT INTO product_daily_stats (product_id, stat_date, seller_id, gmv, order_count, units_sold) " +
+            "VALUES (?, ?, ?, ?, 1, ?) ON DUPLICATE KEY UPDATE gmv = gmv + VALUES(gmv), " +
+            "order_count = order_count + 1, units_sold = units_sold + VALUES(units_sold)";
+
+    private static final String UPSERT_SELLER_SQL =
+            "INSERT INTO seller_daily_stats (seller_id, stat_date, gmv, order_count, units_sold) " +
+            "VALUES (?, ?, ?, 1, ?) ON DUPLICATE KEY UPDATE gmv = gmv + VALUES(gmv), " +
+            "order_count = order_count + 1, units_sold = units_sold + VALUES(units_sold)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean(false);
+
+    private record OrderLine(LocalDate statDate, Long productId, Long sellerId, int units, BigDecimal gmv) {
+    }
+
+    @Override
+    @Transactional
+    public boolean applyOrder(Long orderId) {
+        List<OrderLine> lines = jdbcTemplate.query(ORDER_LINES_SQL, (rs, rowNum) -> new OrderLine(
+                rs.getDate("stat_date").toLocalDate(), rs.getLong("product_id"), rs.getLong("seller_id"),
+                rs.getInt("units"), rs.getBigDecimal("gmv")), orderId);
+        if (lines.isEmpty()) {
+            return false;
+        }
+        if (jdbcTemplate.update("INSERT IGNORE INTO sales_rollup_order (order_id, applied_at) VALUES (?, ?)",
+                orderId, LocalDateTime.now()) == 0) {
+            return false;
+        }
+
+        List<Object[]> productArgs = new ArrayList<>(lines.size());
+        // 卖家维度按卖家合并，一个订单对每个卖家只算一单
+        Map<Long, OrderLine> bySeller = new TreeMap<>();
+        for (OrderLine line : lines) {
+            productArgs.add(new Object[]{line.productId(), Date.valueOf(line.statDate()), line.sellerId(),
+                    line.gmv(), line.units()});
+            bySeller.merge(line.sellerId(), line, (a, b) -> new OrderLine(a.statDate(), null, a.sellerId(),
+                    a.units() + b.units(), a.gmv().add(b.gmv())));
+        }
+        List<Object[]> sellerArgs = new ArrayList<>(bySeller.size());
+        for (OrderLine line : bySeller.values()) {
+            sellerArgs.add(new Object[]{line.sellerId(), Date.valueOf(line.statDate()), line.gmv(), line.units()});
+        }
+        jdbcTemplate.batchUpdate(UPSERT_PRODUCT_SQL, productArgs);
+        jdbcTemplate.batchUpdate(UPSERT_SELLER_SQL, sellerArgs);
+        return true;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SellerStatsResponse getStats(Long sellerId, LocalDate from, LocalDate to) {
+        List<SellerStatsResponse.DailyStat> daily = jdbcTemplate.query(
+                "SELECT stat_date, gmv, order_count, units_sold FROM seller_daily_stats " +
+                "WHERE seller_id = ? AND stat_date BETWEEN ? AND ? ORDER BY stat_date",
+                (rs, rowNum) -> new SellerStatsResponse.DailyStat(rs.getDate("stat_date").toLocalDate(),
+                        rs.getBigDecimal("gmv"), rs.getLong("order_count"), rs.getLong("units_sold")),
+                sellerId, Date.valueOf(from), Date.valueOf(to));
+
+        List<SellerStatsResponse.ProductStat> products = jdbcTemplate.query(
+                "SELECT product_id, SUM(gmv) AS gmv, SUM(order_count) AS order_count, SUM(units_sold) AS units_sold " +
+                "FROM product_daily_stats WHERE seller_id = ? AND stat_date BETWEEN ? AND ? " +
+                "GROUP BY product_id ORDER BY gmv DESC LIMIT " + MAX_PRODUCTS,
+                (rs, rowNum) -> new SellerStatsResponse.ProductStat(rs.getLong("product_id"),
+                        rs.getBigDecimal("gmv"), rs.getLong("order_count"), rs.getLong("units_sold")),
+                sellerId, Date.valueOf(from), Date.valueOf(to));
+
+        SellerStatsResponse response = new SellerStatsResponse();
+        response.setSellerId(sellerId);
+        response.setFrom(from);
+        response.setTo(to);
+        response.setDaily(daily);
+        response.setProducts(products);
+        BigDecimal gmv = BigDecimal.ZERO;
+        long orderCount = 0;
+        long unitsSold = 0;
+        for (SellerStatsResponse.DailyStat day : daily) {
+            gmv = gmv.add(day.getGmv());
+            orderCount += day.getOrderCount();
+            unitsSold += day.getUnitsSold();
+        }
+        response.setGmv(gmv);
+        response.setOrderCount(orderCount);
+        response.setUnitsSold(unitsSold);
+        return response;
+    }
+
+    @Override
+    public boolean startBackfill(boolean reset) {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                backfill(reset);
+            } catch (Exception e) {
+                logger.error("卖家销售汇总回填失败", e);
+            } finally {
+                backfillRunning.set(false);
+            }
+        }, "seller-stats-backfill");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    @Override
+    public boolean isBackfillRunning() {
+        return backfillRunning.get();
+    }
+
+    private void backfill(boolean reset) {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.update("INSERT IGNORE INTO batch_job_checkpoint (job_name, last_id, updated_at) VALUES (?, 0, ?)",
+                BACKFILL_JOB, LocalDateTime.now());
+        if (reset) {
+            saveCheckpoint(0L);
+        }
+        Long lastId = jdbcTemplate.queryForObject(
+                "SELECT last_id FROM batch_job_checkpoint WHERE job_name = ?", Long.class, BACKFILL_JOB);
+        logger.info("开始回填卖家销售汇总, 起始订单ID: {}", lastId);
+
+        int applied = 0;
+        while (true) {
+            List<Long> orderIds = jdbcTemplate.queryForList(
+                    "SELECT id FROM orders WHERE status = 'COMPLETED' AND id > ? ORDER BY id LIMIT " + BACKFILL_BATCH_SIZE,
+                    Long.class, lastId);
+            if (orderIds.isEmpty()) {
+                break;
+            }
+            Long batchLastId = orderIds.get(orderIds.size() - 1);
+            // 每批一个事务，汇总和进度一起提交，中断后从这里继续
+            Integer count = transactionTemplate.execute(status -> {
+                int n = 0;
+                for (Long orderId : orderIds) {
+                    if (applyOrder(orderId)) {
+                        n++;
+                    }
+                }
+                saveCheckpoint(batchLastId);
+                return n;
+            });
+            applied += count != null ? count : 0;
+            lastId = batchLastId;
+            if (orderIds.size() < BACKFILL_BATCH_SIZE) {
+                break;
+            }
+        }
+        logger.info("卖家销售汇总回填完成, 新计入订单数: {}, 耗时: {}ms", applied, System.currentTimeMillis() - start);
+    }
+
+    private void saveCheckpoint(Long lastId) {
+        jdbcTemplate.update("UPDATE batch_job_checkpoint SET last_id = ?, updated_at = ? WHERE job_name = ?",
+                lastId, LocalDateTime.now(), BACKFILL_JOB);
+    }
+}
@@ -0,0 +1,174 @@
+package com.backmore.secondhand_mall.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 基于BM25打分的内存倒排索引
+ * 内部使用连续的int文档号，删除和更新采用墓碑标记，墓碑过多时由调用方整体重建
+ * 非线程安全，由调用方加锁
+ */
+public class Bm25Index {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    /**
+     * 单个词的倒排表，文档号递增追加
+     */
+    private static class PostingList {
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+    }
+
+    public record Hit(long productId, float score) {
+    }
+
+    public record SearchHits(int total, List<Hit> hits) {
+    }
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, Integer> docByProductId = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private long[] productIds = new long[1024];
+    private int[] docLengths = new int[1024];
+    private int docCount;
+    private int liveCount;
+    private long liveLength;
+
+    /**
+     * 添加或替换一个商品文档
+     */
+    public void add(long productId, Map<String, Integer> termFreqs, int length) {
+        remove(productId);
+
+        if (docCount == productIds.length) {
+            productIds = Arrays.copyOf(productIds, docCount * 2);
+            docLengths = Arrays.copyOf(docLengths, docCount * 2);
+        }
+        int doc = docCount++;
+        productIds[doc] = productId;
+        docLengths[doc] = length;
+        docByProductId.put(productId, doc);
+
+        for (Map.Entry<String, Integer> entry : termFreqs.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new PostingList()).add(doc, entry.getValue());
+        }
+        liveCount++;
+        liveLength += length;
+    }
+
+    public boolean remove(long productId) {
+        Integer doc = docByProductId.remove(productId);
+        if (doc == null) {
+            return false;
+        }
+        deleted.set(doc);
+        liveCount--;
+        liveLength -= docLengths[doc];
+        return true;
+    }
+
+    public int size() {
+        return liveCount;
+    }
+
+    public int deletedCount() {
+        return docCount - liveCount;
+    }
+
+    /**
+     * BM25检索，要求至少命中一半的查询词
+     * 文档频率包含已删除文档，在墓碑较少时对排序影响可以忽略
+     */
+    public SearchHits search(List<String> terms, int offset, int limit) {
+        if (terms.isEmpty() || liveCount == 0) {
+            return new SearchHits(0, Collections.emptyList());
+        }
+
+        float avgLength = Math.max(1f, (float) liveLength / liveCount);
+        float[] scores = new float[docCount];
+        byte[] matched = new byte[docCount];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                continue;
+            }
+            float idf = (float) Math.log(1 + (liveCount - list.size + 0.5) / (list.size + 0.5));
+            if (idf <= 0) {
+                idf = 0.01f;
+            }
+            for (int i = 0; i < list.size; i++) {
+                int doc = list.docs[i];
+                if (deleted.get(doc)) {
+                    continue;
+                }
+                int freq = list.freqs[i];
+                float norm = K1 * (1 - B + B * docLengths[doc] / avgLength);
+                if (matched[doc] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = doc;
+                }
+                if (matched[doc] < Byte.MAX_VALUE) {
+                    matched[doc]++;
+                }
+                scores[doc] += idf * freq * (K1 + 1) / (freq + norm);
+            }
+        }
+
+        int minMatch = Math.max(1, (terms.size() + 1) / 2);
+        int want = offset + limit;
+        PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> Float.compare(scores[a], scores[b]));
+        int total = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            if (matched[doc] < minMatch) {
+                continue;
+            }
+            total++;
+            if (want <= 0) {
+                continue;
+            }
+            if (top.size() < want) {
+                top.add(doc);
+            } else if (scores[doc] > scores[top.peek()]) {
+                top.poll();
+                top.add(doc);
+            }
+        }
+
+        List<Hit> ranked = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            int doc = top.poll();
+            ranked.add(new Hit(productIds[doc], scores[doc]));
+        }
+        Collections.reverse(ranked);
+
+        List<Hit> page = offset >= ranked.size()
+                ? Collections.emptyList()
+                : new ArrayList<>(ranked.subList(offset, ranked.size()));
+        return new SearchHits(total, page);
+    }
+}
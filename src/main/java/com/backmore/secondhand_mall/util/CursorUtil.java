@@ -0,0 +1,58 @@
+package com.backmore.secondhand_mall.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 游标分页工具类
+ * 游标编码了上一页最后一条记录的 (create_time, id)，对客户端是不透明的字符串
+ */
+public class CursorUtil {
+
+    /**
+     * 游标位置
+     */
+    public record Cursor(long timeMillis, long id) {
+
+        public Date toDate() {
+            return new Date(timeMillis);
+        }
+
+        public LocalDateTime toLocalDateTime() {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMillis), ZoneId.systemDefault());
+        }
+    }
+
+    public static String encode(Date time, Long id) {
+        return encode(time.getTime(), id);
+    }
+
+    public static String encode(LocalDateTime time, Long id) {
+        return encode(time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), id);
+    }
+
+    /**
+     * 解析游标，空游标表示第一页，返回null
+     */
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            return new Cursor(Long.parseLong(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor);
+        }
+    }
+
+    private static String encode(long timeMillis, Long id) {
+        String raw = timeMillis + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,196 @@
+package com.backmore.secondhand_mall.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 哈希时间轮
+ * 登记定时任务只是入队，O(1)且无锁；由单个工作线程每个刻度推进一格，把到期任务批量交给处理器
+ * 超过一圈的任务记录剩余圈数，轮到所在格子时减一，适合大量、精度要求为秒级的超时任务
+ */
+public class HashedTimingWheel<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    // 每个刻度最多从登记队列转入的任务数，避免一次性大量登记时卡住推进
+    private static final int MAX_TRANSFER_PER_TICK = 100000;
+
+    public static final class Timeout<T> {
+        private final T task;
+        private final long deadline;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        private Timeout(T task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public T getTask() {
+            return task;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * 取消后不会再触发，已放入格子的任务在下次经过时移除
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final String name;
+    private final long tickMillis;
+    private final int mask;
+    private final List<List<Timeout<T>>> buckets;
+    private final Queue<Timeout<T>> registrations = new ConcurrentLinkedQueue<>();
+    private final Consumer<List<T>> handler;
+    private final AtomicInteger size = new AtomicInteger();
+
+    private volatile Thread worker;
+    private volatile boolean running;
+    private long startTime;
+    private long tick;
+
+    /**
+     * @param ticksPerWheel 格子数，向上取整为2的幂
+     * @param handler 在工作线程中执行，接收同一刻度到期的全部任务
+     */
+    public HashedTimingWheel(String name, long tickMillis, int ticksPerWheel, Consumer<List<T>> handler) {
+        if (tickMillis <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("刻度时长和格子数必须大于0");
+        }
+        int wheelSize = 1;
+        while (wheelSize < ticksPerWheel) {
+            wheelSize <<= 1;
+        }
+        this.name = name;
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.handler = handler;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        startTime = System.currentTimeMillis();
+        tick = 0;
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        Thread thread = worker;
+        // 不中断工作线程，避免打断正在执行的处理器；最多等待一次休眠结束
+        if (thread != null) {
+            try {
+                thread.join(tickMillis * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 登记任务，deadline为毫秒时间戳，已过期的任务在下一个刻度触发
+     */
+    public Timeout<T> schedule(T task, long deadline) {
+        Timeout<T> timeout = new Timeout<>(task, deadline);
+        registrations.add(timeout);
+        size.incrementAndGet();
+        return timeout;
+    }
+
+    /**
+     * 尚未触发的任务数，包含已取消但还未从格子中移除的任务
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private void run() {
+        while (running) {
+            long tickDeadline = startTime + (tick + 1) * tickMillis;
+            long sleep = tickDeadline - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+
+            transferRegistrations();
+            List<T> expired = expireBucket(buckets.get((int) (tick & mask)));
+            tick++;
+
+            if (!expired.isEmpty()) {
+                try {
+                    handler.accept(expired);
+                } catch (Exception e) {
+                    logger.error("时间轮任务处理失败, 时间轮: {}, 任务数: {}", name, expired.size(), e);
+                }
+            }
+        }
+    }
+
+    private void transferRegistrations() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            Timeout<T> timeout = registrations.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (timeout.cancelled) {
+                size.decrementAndGet();
+                continue;
+            }
+            long ticks = Math.max(0, (timeout.deadline - startTime) / tickMillis);
+            // 已经过期的任务放到当前格子，本刻度即触发
+            long target = Math.max(ticks, tick);
+            timeout.remainingRounds = (target - tick) / buckets.size();
+            buckets.get((int) (target & mask)).add(timeout);
+        }
+    }
+
+    private List<T> expireBucket(List<Timeout<T>> bucket) {
+        List<T> expired = new ArrayList<>();
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Timeout<T> timeout = bucket.get(i);
+            if (timeout.cancelled) {
+                size.decrementAndGet();
+            } else if (timeout.remainingRounds <= 0) {
+                expired.add(timeout.task);
+                size.decrementAndGet();
+            } else {
+                timeout.remainingRounds--;
+                bucket.set(kept++, timeout);
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+        return expired;
+    }
+}
@@ -0,0 +1,121 @@
+package com.backmore.secondhand_mall.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 订单号生成器（Snowflake风格）
+ * ID = 41位毫秒时间戳(自2024-01-01起) + 10位节点号 + 12位毫秒内序号，订单号 = yyyyMMdd + 19位ID
+ * 时间戳和序号打包在一个AtomicLong里用CAS推进，无锁；
+ * 序号用完或时钟回拨时沿用上次的时间戳继续递增（借用下一毫秒），不等待也不重复
+ */
+@Component
+public class OrderNumberGenerator {
+
+    public static final long EPOCH = 1704067200000L; // 2024-01-01T00:00:00Z
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    /**
+     * 当天的日期前缀缓存，跨天时整体替换
+     */
+    private record DayPrefix(long startMillis, long endMillis, String prefix) {
+    }
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    private final ZoneId zone;
+    // 高位为上次使用的时间戳，低12位为序号
+    private final AtomicLong state = new AtomicLong();
+    private volatile DayPrefix dayPrefix = new DayPrefix(0, 0, "");
+
+    public OrderNumberGenerator(@Value("${order.node-id:0}") long nodeId) {
+        this(nodeId, System::currentTimeMillis, ZoneId.systemDefault());
+    }
+
+    OrderNumberGenerator(long nodeId, LongSupplier clock, ZoneId zone) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("order.node-id必须在0到" + MAX_NODE_ID + "之间: " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+        this.zone = zone;
+    }
+
+    /**
+     * 生成下一个ID
+     */
+    public long nextId() {
+        while (true) {
+            long now = clock.getAsLong() - EPOCH;
+            long prev = state.get();
+            long lastTimestamp = prev >>> SEQUENCE_BITS;
+            long timestamp;
+            long sequence;
+            if (now > lastTimestamp) {
+                timestamp = now;
+                sequence = 0;
+            } else {
+                // 同一毫秒或时钟回拨：沿用上次时间戳，序号溢出时借用下一毫秒
+                timestamp = lastTimestamp;
+                sequence = (prev & SEQUENCE_MASK) + 1;
+                if (sequence > SEQUENCE_MASK) {
+                    timestamp++;
+                    sequence = 0;
+                }
+            }
+            if (state.compareAndSet(prev, (timestamp << SEQUENCE_BITS) | sequence)) {
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    /**
+     * 生成订单号：ID所含日期 + 补齐到19位的ID
+     */
+    public String nextOrderNumber() {
+        long id = nextId();
+        long millis = timestampOf(id);
+        DayPrefix day = dayPrefix;
+        if (millis < day.startMillis() || millis >= day.endMillis()) {
+            day = computeDayPrefix(millis);
+            dayPrefix = day;
+        }
+        String digits = Long.toString(id);
+        StringBuilder sb = new StringBuilder(day.prefix().length() + 19).append(day.prefix());
+        for (int i = digits.length(); i < 19; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
+    }
+
+    /**
+     * 从ID中解析出生成时的时间戳（毫秒）
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    public static long nodeIdOf(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    private DayPrefix computeDayPrefix(long millis) {
+        LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+        long start = date.atStartOfDay(zone).toInstant().toEpochMilli();
+        long end = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        return new DayPrefix(start, end, date.format(DATE_FORMAT));
+    }
+}
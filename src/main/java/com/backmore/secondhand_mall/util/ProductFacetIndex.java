@@ -0,0 +1,213 @@
+package com.backmore.secondhand_mall.util;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商品分面筛选的内存位图索引
+ * 每个分类、成色、价格区间、交易方式和上下架状态各维护一个压缩位图，位图下标即商品ID
+ * 同一维度内多个取值取并集，不同维度之间取交集
+ * 非线程安全，由调用方加锁
+ */
+public class ProductFacetIndex {
+
+    public static final String DIM_CATEGORY = "categoryId";
+    public static final String DIM_CONDITION = "condition";
+    public static final String DIM_PRICE_BAND = "priceBand";
+    public static final String DIM_FACE_TO_FACE = "faceToFace";
+    public static final String DIM_DELIVERY = "delivery";
+    public static final String DIM_STATUS = "status";
+
+    private static final double[] PRICE_BAND_BOUNDS = {50, 100, 200, 500, 1000};
+    private static final String[] PRICE_BANDS = {"0-50", "50-100", "100-200", "200-500", "500-1000", "1000+"};
+
+    /**
+     * 单个商品的分面取值，值为null表示该维度不参与索引
+     */
+    public record Entry(Long categoryId, String condition, Double price,
+                        Boolean faceToFace, Boolean delivery, Boolean online) {
+    }
+
+    /**
+     * 筛选条件，某维度为空表示不限制
+     */
+    public static class Query {
+        private final Map<String, Collection<String>> filters = new LinkedHashMap<>();
+
+        public Query where(String dimension, Collection<String> values) {
+            if (values != null && !values.isEmpty()) {
+                filters.put(dimension, values);
+            }
+            return this;
+        }
+
+        public Query where(String dimension, Boolean value) {
+            if (value != null) {
+                filters.put(dimension, List.of(value.toString()));
+            }
+            return this;
+        }
+    }
+
+    public record Result(int total, List<Long> productIds, Map<String, Map<String, Integer>> facets) {
+    }
+
+    // 维度 -> 取值 -> 位图
+    private final Map<String, Map<String, RoaringBitmap>> dimensions = new LinkedHashMap<>();
+    // 记录每个商品已写入的取值，更新时先从旧位图中移除
+    private final Map<Integer, Map<String, String>> valuesById = new HashMap<>();
+
+    public ProductFacetIndex() {
+        for (String dimension : List.of(DIM_CATEGORY, DIM_CONDITION, DIM_PRICE_BAND,
+                DIM_FACE_TO_FACE, DIM_DELIVERY, DIM_STATUS)) {
+            dimensions.put(dimension, new LinkedHashMap<>());
+        }
+    }
+
+    public static String priceBand(Double price) {
+        if (price == null) {
+            return null;
+        }
+        for (int i = 0; i < PRICE_BAND_BOUNDS.length; i++) {
+            if (price < PRICE_BAND_BOUNDS[i]) {
+                return PRICE_BANDS[i];
+            }
+        }
+        return PRICE_BANDS[PRICE_BANDS.length - 1];
+    }
+
+    /**
+     * 添加或替换一个商品
+     */
+    public void put(long productId, Entry entry) {
+        int id = Math.toIntExact(productId);
+        remove(productId);
+
+        Map<String, String> values = new HashMap<>();
+        values.put(DIM_CATEGORY, entry.categoryId() != null ? entry.categoryId().toString() : null);
+        values.put(DIM_CONDITION, entry.condition());
+        values.put(DIM_PRICE_BAND, priceBand(entry.price()));
+        values.put(DIM_FACE_TO_FACE, entry.faceToFace() != null ? entry.faceToFace().toString() : null);
+        values.put(DIM_DELIVERY, entry.delivery() != null ? entry.delivery().toString() : null);
+        values.put(DIM_STATUS, String.valueOf(Boolean.TRUE.equals(entry.online())));
+        values.values().removeIf(v -> v == null);
+
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            dimensions.get(value.getKey())
+                    .computeIfAbsent(value.getValue(), k -> new RoaringBitmap())
+                    .add(id);
+        }
+        valuesById.put(id, values);
+    }
+
+    public boolean remove(long productId) {
+        int id = Math.toIntExact(productId);
+        Map<String, String> values = valuesById.remove(id);
+        if (values == null) {
+            return false;
+        }
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            Map<String, RoaringBitmap> bitmaps = dimensions.get(value.getKey());
+            RoaringBitmap bitmap = bitmaps.get(value.getValue());
+            bitmap.remove(id);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(value.getValue());
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return valuesById.size();
+    }
+
+    /**
+     * 按条件筛选，结果按商品ID倒序（即发布时间由新到旧）分页
+     * 每个维度的分面计数只应用其他维度的条件，便于前端展示切换该维度后的数量
+     */
+    public Result query(Query query, int offset, int limit) {
+        Map<String, RoaringBitmap> matchedByDimension = new HashMap<>();
+        for (Map.Entry<String, Collection<String>> filter : query.filters.entrySet()) {
+            matchedByDimension.put(filter.getKey(), union(filter.getKey(), filter.getValue()));
+        }
+
+        RoaringBitmap matched = intersect(matchedByDimension, null);
+
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, RoaringBitmap>> dimension : dimensions.entrySet()) {
+            if (DIM_STATUS.equals(dimension.getKey())) {
+                continue;
+            }
+            RoaringBitmap others = matchedByDimension.containsKey(dimension.getKey())
+                    ? intersect(matchedByDimension, dimension.getKey())
+                    : matched;
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (Map.Entry<String, RoaringBitmap> value : dimension.getValue().entrySet()) {
+                int count = others == null
+                        ? value.getValue().getCardinality()
+                        : RoaringBitmap.andCardinality(others, value.getValue());
+                if (count > 0) {
+                    counts.put(value.getKey(), count);
+                }
+            }
+            facets.put(dimension.getKey(), counts);
+        }
+
+        RoaringBitmap result = matched != null ? matched : allIds();
+        List<Long> page = new ArrayList<>(Math.max(0, Math.min(limit, result.getCardinality() - offset)));
+        IntIterator it = result.getReverseIntIterator();
+        int skipped = 0;
+        while (it.hasNext() && page.size() < limit) {
+            int id = it.next();
+            if (skipped++ < offset) {
+                continue;
+            }
+            page.add((long) id);
+        }
+        return new Result(result.getCardinality(), page, facets);
+    }
+
+    private RoaringBitmap union(String dimension, Collection<String> values) {
+        Map<String, RoaringBitmap> bitmaps = dimensions.get(dimension);
+        if (bitmaps == null) {
+            throw new IllegalArgumentException("不支持的筛选维度: " + dimension);
+        }
+        RoaringBitmap result = new RoaringBitmap();
+        for (String value : values) {
+            RoaringBitmap bitmap = bitmaps.get(value);
+            if (bitmap != null) {
+                result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 对各维度的结果取交集，excluded维度不参与；没有任何条件时返回null表示全集
+     */
+    private RoaringBitmap intersect(Map<String, RoaringBitmap> matchedByDimension, String excluded) {
+        RoaringBitmap result = null;
+        for (Map.Entry<String, RoaringBitmap> entry : matchedByDimension.entrySet()) {
+            if (entry.getKey().equals(excluded)) {
+                continue;
+            }
+            result = result == null ? entry.getValue().clone() : RoaringBitmap.and(result, entry.getValue());
+        }
+        return result;
+    }
+
+    private RoaringBitmap allIds() {
+        RoaringBitmap all = new RoaringBitmap();
+        for (RoaringBitmap bitmap : dimensions.get(DIM_STATUS).values()) {
+            all.or(bitmap);
+        }
+        return all;
+    }
+}
@@ -0,0 +1,180 @@
+package com.backmore.secondhand_mall.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 本地磁盘上的预写日志，每条记录一行文本
+ * 日志按段存放（wal-000001.log ...），检查点时切换到新段，旧段在数据落库后删除
+ * fsync为true时采用组提交：并发追加的记录由一次force一起刷盘
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path dir;
+    private final boolean fsync;
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+
+    private FileChannel channel;
+    private long segment;
+    // 已写入和已刷盘的逻辑位置，用于组提交判断
+    private long written;
+    private volatile long synced;
+
+    public WriteAheadLog(Path dir, boolean fsync) {
+        this.dir = dir;
+        this.fsync = fsync;
+        try {
+            Files.createDirectories(dir);
+            List<Long> existing = segments();
+            segment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+            channel = open(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开预写日志失败: " + dir, e);
+        }
+    }
+
+    /**
+     * 追加一条记录，返回时记录已写入操作系统（fsync为true时已落盘）
+     */
+    public void append(String record) {
+        byte[] bytes = (record + "\n").getBytes(StandardCharsets.UTF_8);
+        long position;
+        FileChannel target;
+        synchronized (writeLock) {
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("写入预写日志失败", e);
+            }
+            written += bytes.length;
+            position = written;
+            target = channel;
+        }
+        if (fsync && synced < position) {
+            synchronized (syncLock) {
+                // 等锁期间其他线程的force可能已经覆盖了本条记录
+                if (synced < position) {
+                    long upTo;
+                    synchronized (writeLock) {
+                        upTo = written;
+                    }
+                    try {
+                        target.force(false);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("预写日志刷盘失败", e);
+                    }
+                    synced = Math.max(synced, upTo);
+                }
+            }
+        }
+    }
+
+    /**
+     * 切换到新段，返回切换前的所有段号；这些段中的记录落库后可以调用deleteUpTo删除
+     */
+    public long rotate() {
+        synchronized (syncLock) {
+            synchronized (writeLock) {
+                try {
+                    channel.force(false);
+                    channel.close();
+                    long previous = segment;
+                    segment++;
+                    channel = open(segment);
+                    synced = written;
+                    return previous;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("切换预写日志段失败", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除段号不大于lastSegment的日志段
+     */
+    public void deleteUpTo(long lastSegment) {
+        try {
+            for (Long id : segments()) {
+                if (id <= lastSegment) {
+                    Files.deleteIfExists(path(id));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("删除预写日志段失败", e);
+        }
+    }
+
+    /**
+     * 按顺序读取当前段之前的全部记录，用于启动恢复
+     * 进程崩溃时最后一行可能不完整，由调用方解析时忽略
+     */
+    public void replay(Consumer<String> consumer) {
+        try {
+            for (Long id : segments()) {
+                if (id >= segment) {
+                    continue;
+                }
+                try (BufferedReader reader = Files.newBufferedReader(path(id), StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.isEmpty()) {
+                            consumer.accept(line);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取预写日志失败", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("关闭预写日志失败", e);
+            }
+        }
+    }
+
+    private FileChannel open(long id) throws IOException {
+        return FileChannel.open(path(id), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path path(long id) {
+        return dir.resolve(String.format("%s%06d%s", PREFIX, id, SUFFIX));
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> ids.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+        }
+        ids.sort(null);
+        return ids;
+    }
+}
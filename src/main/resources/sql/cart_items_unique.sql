@@ -0,0 +1,20 @@
+-- 购物车项按(cart_id, product_id)唯一，同一商品只占一行，写回时用 INSERT ... ON DUPLICATE KEY UPDATE
+-- 加约束前先合并历史重复行：数量累加到ID最小的一行，删除其余行
+UPDATE cart_items ci
+JOIN (
+    SELECT cart_id, product_id, MIN(id) AS keep_id, SUM(quantity) AS total_quantity
+    FROM cart_items
+    GROUP BY cart_id, product_id
+    HAVING COUNT(*) > 1
+) dup ON ci.id = dup.keep_id
+SET ci.quantity = dup.total_quantity;
+
+DELETE ci FROM cart_items ci
+JOIN (
+    SELECT cart_id, product_id, MIN(id) AS keep_id
+    FROM cart_items
+    GROUP BY cart_id, product_id
+    HAVING COUNT(*) > 1
+) dup ON ci.cart_id = dup.cart_id AND ci.product_id = dup.product_id AND ci.id <> dup.keep_id;
+
+ALTER TABLE cart_items ADD UNIQUE KEY uk_cart_items_cart_product (cart_id, product_id);
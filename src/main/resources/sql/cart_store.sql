@@ -0,0 +1,7 @@
+-- 内存购物车在写回前就要为购物车和购物车项分配ID，改为从号段表按块分配（每块50个）
+-- 初始值取现有最大ID+50，与自增ID不冲突
+INSERT INTO id_generator (sequence_name, next_val)
+SELECT 'cart', COALESCE(MAX(id), 0) + 50 FROM cart;
+
+INSERT INTO id_generator (sequence_name, next_val)
+SELECT 'cart_items', COALESCE(MAX(id), 0) + 50 FROM cart_items;
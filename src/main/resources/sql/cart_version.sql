@@ -0,0 +1,2 @@
+-- 购物车版本号：每次修改递增，由内存购物车写回，客户端批量修改时用于乐观并发控制
+ALTER TABLE cart ADD COLUMN version BIGINT NOT NULL DEFAULT 0 COMMENT '购物车版本号';
@@ -0,0 +1,15 @@
+-- 创建号段ID分配表（Hibernate TABLE生成器，每次分配50个）
+CREATE TABLE id_generator (
+    sequence_name VARCHAR(64) NOT NULL PRIMARY KEY COMMENT '序列名，对应表名',
+    next_val BIGINT NOT NULL COMMENT '已分配号段的上界'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='号段ID分配表';
+
+-- pooled优化器把读到的值作为号段上界（分配 next_val-49 ~ next_val），初始值取现有最大ID+50，避免与已有数据冲突
+INSERT INTO id_generator (sequence_name, next_val)
+SELECT 'orders', COALESCE(MAX(id), 0) + 50 FROM orders;
+
+INSERT INTO id_generator (sequence_name, next_val)
+SELECT 'order_items', COALESCE(MAX(id), 0) + 50 FROM order_items;
+
+INSERT INTO id_generator (sequence_name, next_val)
+SELECT 'stock_reservation', COALESCE(MAX(id), 0) + 50 FROM stock_reservation;
@@ -0,0 +1,13 @@
+-- 创建幂等键表，保存带Idempotency-Key请求的首次响应，重试时直接返回
+-- 执行业务前先插入IN_PROGRESS记录占用键，完成后更新为COMPLETED并写入响应
+CREATE TABLE idempotency_key (
+    scope_key VARCHAR(255) NOT NULL PRIMARY KEY COMMENT '用户、接口和客户端幂等键组合',
+    request_hash CHAR(64) COMMENT '请求内容摘要，同一个键用于不同请求时拒绝',
+    status VARCHAR(20) NOT NULL COMMENT '处理状态: IN_PROGRESS/COMPLETED',
+    status_code INT COMMENT '响应状态码，处理中为空',
+    response_body MEDIUMTEXT COMMENT '响应内容(JSON)',
+    created_at DATETIME NOT NULL COMMENT '创建时间（处理中时为占用时间）'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='幂等键表';
+
+-- 创建索引
+CREATE INDEX idx_idempotency_key_created ON idempotency_key(created_at);
@@ -0,0 +1,4 @@
+-- 游标分页索引：按 (create_time, id) 倒序定位，避免深分页的 OFFSET 扫描
+CREATE INDEX idx_product_create_time_id ON product(create_time, id);
+CREATE INDEX idx_orders_user_create_time_id ON orders(user_id, create_time, id);
+CREATE INDEX idx_reviews_product_create_time_id ON reviews(product_id, create_time, id);
@@ -0,0 +1,9 @@
+-- 游标分页依赖 (create_time, id) 全序：create_time 为 NULL 的行既无法编码游标，也会被 create_time < ? 的条件跳过
+-- 先用更新时间回填历史空值（更新时间也为空时取当前时间），再加 NOT NULL 约束
+UPDATE product SET create_time = COALESCE(update_time, CURRENT_TIMESTAMP) WHERE create_time IS NULL;
+UPDATE orders SET create_time = COALESCE(update_time, CURRENT_TIMESTAMP) WHERE create_time IS NULL;
+UPDATE reviews SET create_time = COALESCE(update_time, CURRENT_TIMESTAMP) WHERE create_time IS NULL;
+
+ALTER TABLE product MODIFY COLUMN create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间';
+ALTER TABLE orders MODIFY COLUMN create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间';
+ALTER TABLE reviews MODIFY COLUMN create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间';
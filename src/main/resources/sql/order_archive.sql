@@ -0,0 +1,10 @@
+-- 创建订单归档表，结构与在线表一致
+CREATE TABLE orders_archive LIKE orders;
+CREATE TABLE order_items_archive LIKE order_items;
+
+ALTER TABLE orders_archive COMMENT='订单归档表';
+ALTER TABLE order_items_archive COMMENT='订单项归档表';
+
+-- 创建索引：归档任务按状态和更新时间挑选冷数据；归档表按用户和订单查询
+CREATE INDEX idx_orders_status_update_time ON orders(status, update_time);
+CREATE INDEX idx_order_items_archive_order ON order_items_archive(order_id);
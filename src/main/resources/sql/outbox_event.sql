@@ -0,0 +1,27 @@
+-- 创建事务发件箱表
+CREATE TABLE outbox_event (
+    id BIGINT PRIMARY KEY,
+    event_type VARCHAR(50) NOT NULL COMMENT '事件类型，如ORDER_CREATED、ORDER_PAY',
+    aggregate_id BIGINT NOT NULL COMMENT '业务对象ID，订单事件为订单ID',
+    payload TEXT COMMENT '事件内容(JSON)',
+    status VARCHAR(20) NOT NULL COMMENT '状态: PENDING待处理, PROCESSED已处理, FAILED重试用尽',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '失败次数',
+    next_attempt_at DATETIME NOT NULL COMMENT '下次处理时间',
+    last_error VARCHAR(500) COMMENT '最近一次失败原因',
+    created_at DATETIME NOT NULL COMMENT '创建时间',
+    processed_at DATETIME COMMENT '处理完成时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='事务发件箱表';
+
+-- 创建索引
+CREATE INDEX idx_outbox_event_due ON outbox_event(status, next_attempt_at);
+
+-- 创建发件箱消费记录表，保证同一事件对同一订阅者只处理一次
+CREATE TABLE outbox_consumption (
+    event_id BIGINT NOT NULL COMMENT '发件箱事件ID',
+    subscriber VARCHAR(50) NOT NULL COMMENT '订阅者名称',
+    consumed_at DATETIME NOT NULL COMMENT '处理时间',
+    PRIMARY KEY (event_id, subscriber)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='发件箱消费记录表';
+
+-- 号段ID分配
+INSERT INTO id_generator (sequence_name, next_val) VALUES ('outbox_event', 50);
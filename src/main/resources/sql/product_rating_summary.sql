@@ -0,0 +1,20 @@
+-- 创建商品评分汇总表：只统计审核通过(APPROVED)的评价，随评价的增删改和审核在同一事务内增量更新
+CREATE TABLE product_rating_summary (
+    product_id BIGINT NOT NULL PRIMARY KEY COMMENT '商品ID',
+    review_count INT NOT NULL DEFAULT 0 COMMENT '评价数',
+    rating_sum BIGINT NOT NULL DEFAULT 0 COMMENT '评分总和',
+    rating_1 INT NOT NULL DEFAULT 0 COMMENT '1星评价数',
+    rating_2 INT NOT NULL DEFAULT 0 COMMENT '2星评价数',
+    rating_3 INT NOT NULL DEFAULT 0 COMMENT '3星评价数',
+    rating_4 INT NOT NULL DEFAULT 0 COMMENT '4星评价数',
+    rating_5 INT NOT NULL DEFAULT 0 COMMENT '5星评价数',
+    updated_at DATETIME NOT NULL COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='商品评分汇总表';
+
+-- 用现有评价初始化
+INSERT INTO product_rating_summary (product_id, review_count, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5, updated_at)
+SELECT product_id, COUNT(*), SUM(rating),
+       SUM(rating = 1), SUM(rating = 2), SUM(rating = 3), SUM(rating = 4), SUM(rating = 5), NOW()
+FROM reviews
+WHERE status = 'APPROVED' AND rating BETWEEN 1 AND 5
+GROUP BY product_id;
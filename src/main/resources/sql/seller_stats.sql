@@ -0,0 +1,36 @@
+-- 创建卖家每日销售汇总表
+CREATE TABLE seller_daily_stats (
+    seller_id BIGINT NOT NULL COMMENT '卖家ID',
+    stat_date DATE NOT NULL COMMENT '统计日期(下单日期)',
+    gmv DECIMAL(14, 2) NOT NULL DEFAULT 0 COMMENT '成交金额',
+    order_count INT NOT NULL DEFAULT 0 COMMENT '成交订单数',
+    units_sold INT NOT NULL DEFAULT 0 COMMENT '售出件数',
+    PRIMARY KEY (seller_id, stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='卖家每日销售汇总表';
+
+-- 创建商品每日销售汇总表
+CREATE TABLE product_daily_stats (
+    product_id BIGINT NOT NULL COMMENT '商品ID',
+    stat_date DATE NOT NULL COMMENT '统计日期(下单日期)',
+    seller_id BIGINT NOT NULL COMMENT '卖家ID',
+    gmv DECIMAL(14, 2) NOT NULL DEFAULT 0 COMMENT '成交金额',
+    order_count INT NOT NULL DEFAULT 0 COMMENT '成交订单数',
+    units_sold INT NOT NULL DEFAULT 0 COMMENT '售出件数',
+    PRIMARY KEY (product_id, stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='商品每日销售汇总表';
+
+-- 创建索引
+CREATE INDEX idx_product_daily_stats_seller ON product_daily_stats(seller_id, stat_date);
+
+-- 创建已汇总订单表，保证每个订单只计入一次（增量更新和回填共用）
+CREATE TABLE sales_rollup_order (
+    order_id BIGINT NOT NULL PRIMARY KEY COMMENT '订单ID',
+    applied_at DATETIME NOT NULL COMMENT '汇总时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='已汇总订单表';
+
+-- 创建批处理进度表，回填任务中断后从上次位置继续
+CREATE TABLE batch_job_checkpoint (
+    job_name VARCHAR(64) NOT NULL PRIMARY KEY COMMENT '任务名称',
+    last_id BIGINT NOT NULL DEFAULT 0 COMMENT '已处理的最大ID',
+    updated_at DATETIME NOT NULL COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='批处理进度表';
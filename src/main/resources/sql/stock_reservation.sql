@@ -0,0 +1,15 @@
+-- 创建库存预占表
+CREATE TABLE stock_reservation (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT NOT NULL COMMENT '订单ID',
+    product_id BIGINT NOT NULL COMMENT '商品ID',
+    quantity INT NOT NULL COMMENT '预占数量',
+    status VARCHAR(20) NOT NULL COMMENT '状态: HELD预占中, CONFIRMED已确认, RELEASED已释放',
+    expires_at DATETIME NOT NULL COMMENT '预占过期时间',
+    created_at DATETIME NOT NULL COMMENT '创建时间',
+    updated_at DATETIME NOT NULL COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='库存预占表';
+
+-- 创建索引
+CREATE INDEX idx_stock_reservation_order ON stock_reservation(order_id);
+CREATE INDEX idx_stock_reservation_expire ON stock_reservation(status, expires_at);
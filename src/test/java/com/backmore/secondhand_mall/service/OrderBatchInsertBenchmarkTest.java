@@ -0,0 +1,205 @@
+package com.backmore.secondhand_mall.service;
+
+import com.backmore.secondhand_mall.entity.Order;
+import com.backmore.secondhand_mall.entity.OrderItem;
+import com.backmore.secondhand_mall.entity.Product;
+import com.backmore.secondhand_mall.entity.User;
+import com.backmore.secondhand_mall.repository.ProductRepository;
+import com.backmore.secondhand_mall.repository.StockReservationRepository;
+import com.backmore.secondhand_mall.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 下单写入基准：统计1、10、50个订单项时每单发往数据库的语句数和耗时
+ * 语句在DataSource层计数，JPA、JdbcTemplate的库存扣减批量和发件箱写入都算在内；一次executeBatch算一次
+ * 需要可用的MySQL，默认跳过，运行方式：mvn test -Dtest=OrderBatchInsertBenchmarkTest -Dbenchmark=true
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OrderBatchInsertBenchmarkTest {
+
+    private static final int WARMUP_ORDERS = 20;
+    private static final int MEASURED_ORDERS = 50;
+
+    /**
+     * 只统计测试线程执行的语句，排除发件箱投递、超时扫描等后台任务
+     */
+    private static final AtomicLong EXECUTED = new AtomicLong();
+    private static volatile Thread countedThread;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @TestConfiguration
+    static class StatementCountingConfig {
+
+        @Bean
+        static BeanPostProcessor countingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new CountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    @Test
+    void statementsAndLatencyPerOrder() {
+        User user = userRepository.findAll(PageRequest.of(0, 1)).getContent().get(0);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            products.add(productRepository.save(benchmarkProduct(user.getId(), i)));
+        }
+
+        List<Long> orderIds = new ArrayList<>();
+        Map<Integer, Long> statementsByItemCount = new LinkedHashMap<>();
+        countedThread = Thread.currentThread();
+        try {
+            for (int itemCount : new int[]{1, 10, 50}) {
+                for (int i = 0; i < WARMUP_ORDERS; i++) {
+                    orderIds.add(orderService.createOrder(buildOrder(user.getId(), products, itemCount)).getId());
+                }
+
+                EXECUTED.set(0);
+                long begin = System.nanoTime();
+                for (int i = 0; i < MEASURED_ORDERS; i++) {
+                    orderIds.add(orderService.createOrder(buildOrder(user.getId(), products, itemCount)).getId());
+                }
+                long elapsedNanos = System.nanoTime() - begin;
+                long statements = EXECUTED.get();
+                statementsByItemCount.put(itemCount, statements);
+
+                System.out.printf("订单项数 %2d: 每单语句 %.1f, 平均耗时 %.2f ms%n",
+                        itemCount, (double) statements / MEASURED_ORDERS,
+                        elapsedNanos / 1_000_000.0 / MEASURED_ORDERS);
+            }
+
+            // 订单项、库存扣减和预留都是批量写入，每单语句数与订单项数无关
+            assertEquals(statementsByItemCount.get(1), statementsByItemCount.get(10),
+                    "10项订单的语句数与1项不同: " + statementsByItemCount);
+            assertEquals(statementsByItemCount.get(1), statementsByItemCount.get(50),
+                    "50项订单的语句数与1项不同: " + statementsByItemCount);
+        } finally {
+            countedThread = null;
+            for (Long orderId : orderIds) {
+                orderService.deleteOrder(orderId);
+                stockReservationRepository.deleteAll(stockReservationRepository.findByOrderId(orderId));
+            }
+            productRepository.deleteAll(products);
+        }
+    }
+
+    private Product benchmarkProduct(Long sellerId, int index) {
+        Product product = new Product();
+        product.setName("benchmark-" + index);
+        product.setSellerId(sellerId);
+        product.setPrice(1.0);
+        product.setStock(1_000_000);
+        product.setSales(0);
+        product.setViews(0);
+        product.setStatus(false);
+        product.setCreateTime(new Date());
+        product.setUpdateTime(new Date());
+        return product;
+    }
+
+    private Order buildOrder(Long userId, List<Product> products, int itemCount) {
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            OrderItem item = new OrderItem();
+            item.setProductId(products.get(i).getId());
+            item.setQuantity(1);
+            item.setPrice(BigDecimal.ONE);
+            items.add(item);
+        }
+        Order order = new Order();
+        order.setUserId(userId);
+        order.setTotalPrice(BigDecimal.valueOf(itemCount));
+        order.setItems(items);
+        return order;
+    }
+    /**
+     * 给连接和语句套上代理，每次execute/executeQuery/executeUpdate/executeBatch计一次
+     */
+    static class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return countingConnection(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return countingConnection(super.getConnection(username, password));
+        }
+
+        private static Connection countingConnection(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        // createStatement/prepareStatement/prepareCall按声明的返回类型代理
+                        if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                            return countingStatement(result, method.getReturnType());
+                        }
+                        return result;
+                    });
+        }
+
+        private static Object countingStatement(Object statement, Class<?> type) {
+            return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("execute") && Thread.currentThread() == countedThread) {
+                            EXECUTED.incrementAndGet();
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
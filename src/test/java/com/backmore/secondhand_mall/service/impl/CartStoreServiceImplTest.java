@@ -0,0 +1,286 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.entity.Cart;
+import com.backmore.secondhand_mall.entity.CartItem;
+import com.backmore.secondhand_mall.repository.CartItemRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Answers;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 内存购物车的预写日志恢复：数据库用mock代替，写回失败/阻塞由batchUpdate的行为控制
+ * 每个测试新建store实例模拟进程崩溃后重启，旧实例不调用shutdown；写回冲突模拟另一个实例改过同一购物车
+ */
+class CartStoreServiceImplTest {
+
+    private static final long USER = 1L;
+
+    @TempDir
+    Path walDir;
+
+    // 各实例共享的号段，模拟id_generator表
+    private final AtomicLong idUpperBound = new AtomicLong();
+
+    /**
+     * 模拟数据库：只保存USER的一个购物车；号段分配返回递增上界，写回语句按SQL改动内存中的行，
+     * batchUpdate按failing抛异常，或在blocker不为空时阻塞
+     */
+    private class FakeDatabase {
+        final AtomicBoolean failing = new AtomicBoolean();
+        volatile CountDownLatch entered;
+        volatile CountDownLatch blocker;
+        volatile Long cartId;
+        volatile long version;
+        // 商品ID -> {购物车项ID, 数量}
+        final Map<Long, long[]> items = new ConcurrentHashMap<>();
+
+        JdbcTemplate jdbcTemplate() {
+            return mock(JdbcTemplate.class, invocation -> {
+                switch (invocation.getMethod().getName()) {
+                    case "queryForObject":
+                        return idUpperBound.addAndGet(50);
+                    case "query":
+                        // 加载购物车：query(sql, RowCallbackHandler, args...)
+                        String sql = invocation.getArgument(0);
+                        RowCallbackHandler handler = invocation.getArgument(1);
+                        if (cartId != null && sql.contains("FROM cart WHERE")) {
+                            handler.processRow(row(Map.of("id", cartId, "version", version)));
+                        } else if (cartId != null && sql.contains("FROM cart_items")) {
+                            for (Map.Entry<Long, long[]> item : items.entrySet()) {
+                                handler.processRow(row(Map.of("id", item.getValue()[0], "product_id", item.getKey(),
+                                        "quantity", (int) item.getValue()[1])));
+                            }
+                        }
+                        return null;
+                    case "batchUpdate":
+                        if (failing.get()) {
+                            throw new DataAccessResourceFailureException("数据库不可用");
+                        }
+                        CountDownLatch block = blocker;
+                        if (block != null) {
+                            blocker = null;
+                            entered.countDown();
+                            block.await(5, TimeUnit.SECONDS);
+                        }
+                        apply(invocation.getArgument(0), invocation.getArgument(1));
+                        return new int[0];
+                    default:
+                        return Answers.RETURNS_DEFAULTS.answer(invocation);
+                }
+            });
+        }
+
+        NamedParameterJdbcTemplate namedParameterJdbcTemplate() {
+            return mock(NamedParameterJdbcTemplate.class, invocation -> {
+                if (!invocation.getMethod().getName().equals("query")) {
+                    return Answers.RETURNS_DEFAULTS.answer(invocation);
+                }
+                // 写回：query(sql, SqlParameterSource, RowCallbackHandler)
+                String sql = invocation.getArgument(0);
+                RowCallbackHandler handler = invocation.getArgument(2);
+                if (cartId != null && sql.contains("FROM cart WHERE")) {
+                    handler.processRow(row(Map.of("id", cartId, "user_id", USER, "version", version)));
+                } else if (cartId != null && sql.contains("FROM cart_items")) {
+                    for (long[] item : items.values()) {
+                        handler.processRow(row(Map.of("id", item[0], "cart_id", cartId, "quantity", (int) item[1])));
+                    }
+                }
+                return null;
+            });
+        }
+
+        private void apply(String sql, List<Object[]> rows) {
+            for (Object[] row : rows) {
+                if (sql.startsWith("INSERT INTO cart (")) {
+                    cartId = (Long) row[0];
+                    version = (Long) row[4];
+                } else if (sql.startsWith("DELETE FROM cart_items")) {
+                    items.values().removeIf(item -> item[0] == (Long) row[0]);
+                } else if (sql.startsWith("INSERT INTO cart_items")) {
+                    items.put((Long) row[2], new long[]{(Long) row[0], (Integer) row[3]});
+                }
+            }
+        }
+
+        // 模拟其他实例写过这个购物车
+        void writtenByAnotherInstance(Map<Long, Integer> quantities) {
+            items.clear();
+            quantities.forEach((productId, quantity) -> items.put(productId, new long[]{idUpperBound.addAndGet(50), quantity}));
+            version += 10;
+        }
+
+        Map<Long, Integer> quantities() {
+            return items.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, item -> (int) item.getValue()[1]));
+        }
+
+        private ResultSet row(Map<String, Object> columns) {
+            return mock(ResultSet.class, invocation -> columns.get((String) invocation.getArgument(0)));
+        }
+    }
+
+    private CartStoreServiceImpl newStore(FakeDatabase database) {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        CartStoreServiceImpl store = new CartStoreServiceImpl();
+        ReflectionTestUtils.setField(store, "jdbcTemplate", database.jdbcTemplate());
+        ReflectionTestUtils.setField(store, "namedParameterJdbcTemplate", database.namedParameterJdbcTemplate());
+        ReflectionTestUtils.setField(store, "cartItemRepository", mock(CartItemRepository.class));
+        ReflectionTestUtils.setField(store, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(store, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(store, "maxCarts", 1000L);
+        ReflectionTestUtils.setField(store, "idleMinutes", 30L);
+        ReflectionTestUtils.setField(store, "flushBatchSize", 100);
+        ReflectionTestUtils.setField(store, "walDir", walDir.toString());
+        ReflectionTestUtils.setField(store, "walFsync", false);
+        store.init();
+        return store;
+    }
+
+    private Map<Long, Integer> quantities(Cart cart) {
+        return cart.getItems().stream().collect(Collectors.toMap(CartItem::getProductId, CartItem::getQuantity));
+    }
+
+    private List<String> segmentsWithRecords() throws IOException {
+        try (Stream<Path> files = Files.list(walDir)) {
+            return files.filter(file -> {
+                try {
+                    return Files.size(file) > 0;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }).map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @Test
+    void replayingTheSameSegmentsAgainGivesTheSameCart() {
+        FakeDatabase database = new FakeDatabase();
+        database.failing.set(true);
+        CartStoreServiceImpl store = newStore(database);
+        store.addQuantity(USER, 10L, 2);
+        store.setQuantity(USER, 11L, 3);
+        store.addQuantity(USER, 10L, 1);
+        store.setQuantity(USER, 11L, 0);
+        store.addQuantity(USER, 12L, 5);
+        Map<Long, Integer> expected = quantities(store.getCart(USER));
+        assertEquals(Map.of(10L, 3, 12L, 5), expected);
+
+        // 数据库一直不可用，日志段不会删除，每次重启都重放同样的记录
+        Cart first = newStore(database).getCart(USER);
+        Cart second = newStore(database).getCart(USER);
+
+        assertEquals(expected, quantities(first));
+        assertEquals(expected, quantities(second));
+        assertEquals(store.getCart(USER).getId(), second.getId());
+        // 购物车项ID也随日志恢复，按购物车项ID修改的接口在重启后仍然可用
+        assertEquals(store.getCart(USER).getItems().stream().map(CartItem::getId).toList(),
+                second.getItems().stream().map(CartItem::getId).toList());
+    }
+
+    @Test
+    void failedFlushKeepsSegmentsUntilABatchSucceeds() throws IOException {
+        FakeDatabase database = new FakeDatabase();
+        CartStoreServiceImpl store = newStore(database);
+        database.failing.set(true);
+        store.addQuantity(USER, 10L, 2);
+
+        assertEquals(0, store.flushAll());
+        assertEquals(0, store.flushAll());
+        assertFalse(segmentsWithRecords().isEmpty(), "写回失败后日志段应保留");
+
+        // 恢复后重试写回成功，带记录的日志段全部删除
+        database.failing.set(false);
+        assertEquals(1, store.flushAll());
+        assertTrue(segmentsWithRecords().isEmpty(), "写回成功后日志段应删除: " + segmentsWithRecords());
+
+        // 已经落库的修改不会再被重放，重启后的购物车就是数据库中的版本
+        database.failing.set(true);
+        Cart reloaded = newStore(database).getCart(USER);
+        assertEquals(Map.of(10L, 2), quantities(reloaded));
+        assertEquals(database.version, reloaded.getVersion());
+    }
+
+    @Test
+    void mutationDuringFlushSurvivesDeletionOfTheRotatedSegment() throws Exception {
+        FakeDatabase database = new FakeDatabase();
+        CartStoreServiceImpl store = newStore(database);
+        store.addQuantity(USER, 10L, 1);
+
+        database.entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        database.blocker = release;
+        Thread flusher = new Thread(store::flushAll);
+        flusher.start();
+        assertTrue(database.entered.await(5, TimeUnit.SECONDS), "写回未开始");
+
+        // 日志段已经切换、快照已经取走，此时的修改写入新段
+        store.addQuantity(USER, 10L, 1);
+        release.countDown();
+        flusher.join(5000);
+
+        // 旧段已在写回成功后删除，模拟此时崩溃：新实例只能从新段恢复快照之后的修改
+        database.failing.set(true);
+        Cart recovered = newStore(database).getCart(USER);
+        assertEquals(Map.of(10L, 2), quantities(recovered));
+    }
+
+    @Test
+    void conflictingFlushReplaysLocalChangesOnTopOfTheOtherInstance() throws IOException {
+        FakeDatabase database = new FakeDatabase();
+        CartStoreServiceImpl store = newStore(database);
+        store.addQuantity(USER, 10L, 2);
+        assertEquals(1, store.flushAll());
+
+        // 其他实例改了同一个购物车，之后本实例又改了另一个商品
+        database.writtenByAnotherInstance(Map.of(10L, 7, 20L, 1));
+        store.setQuantity(USER, 11L, 3);
+        long versionBeforeConflict = store.getCart(USER).getVersion();
+
+        store.flushAll();
+        assertEquals(Map.of(10L, 7, 20L, 1), database.quantities(), "冲突时不能覆盖其他实例的数据");
+        Cart rebased = store.getCart(USER);
+        assertEquals(Map.of(10L, 7, 20L, 1, 11L, 3), quantities(rebased));
+        assertTrue(rebased.getVersion() > versionBeforeConflict, "版本号不能回退");
+        assertFalse(segmentsWithRecords().isEmpty(), "重放的修改应写入新的日志段");
+
+        // 旧段已删除，此时崩溃：从数据库状态加新段中的重放记录恢复
+        database.failing.set(true);
+        assertEquals(Map.of(10L, 7, 20L, 1, 11L, 3), quantities(newStore(database).getCart(USER)));
+
+        // 下一轮以数据库的新版本为基准写回成功
+        database.failing.set(false);
+        assertEquals(1, store.flushAll());
+        assertEquals(Map.of(10L, 7, 20L, 1, 11L, 3), database.quantities());
+        assertTrue(segmentsWithRecords().isEmpty());
+    }
+}
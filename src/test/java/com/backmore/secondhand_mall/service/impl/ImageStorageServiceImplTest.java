@@ -0,0 +1,58 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 图片类型校验：扩展名按文件头识别，SVG和识别不出的内容不保存
+ */
+class ImageStorageServiceImplTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D};
+    private static final byte[] SVG = "<svg xmlns=\"http://www.w3.org/2000/svg\" onload=\"alert(1)\"/>"
+            .getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path blobDir;
+
+    private ImageStorageServiceImpl storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new ImageStorageServiceImpl();
+        ReflectionTestUtils.setField(storage, "blobDir", blobDir.toString());
+        ReflectionTestUtils.setField(storage, "urlPrefix", "/uploads/blobs/");
+    }
+
+    private static String dataUrl(String meta, byte[] data) {
+        return "data:" + meta + ";base64," + Base64.getEncoder().encodeToString(data);
+    }
+
+    @Test
+    void extensionComesFromTheFileHeader() {
+        assertTrue(storage.store(PNG, "image/jpeg").endsWith(".png"));
+        assertTrue(storage.storeDataUrl(dataUrl("image/png;charset=utf-8", PNG)).endsWith(".png"));
+    }
+
+    @Test
+    void svgIsRejectedEvenWithParameters() {
+        assertThrows(IllegalArgumentException.class, () -> storage.storeDataUrl(dataUrl("image/svg+xml;charset=utf-8", SVG)));
+        assertThrows(IllegalArgumentException.class, () -> storage.store(SVG, "IMAGE/SVG+XML"));
+    }
+
+    @Test
+    void unrecognizedContentIsRejectedWhateverTheDeclaredType() {
+        assertThrows(IllegalArgumentException.class, () -> storage.store(SVG, "image/png"));
+        assertThrows(IllegalArgumentException.class, () -> storage.store(SVG, null));
+        assertThrows(IllegalArgumentException.class, () -> storage.store(PNG, "text/html"));
+    }
+}
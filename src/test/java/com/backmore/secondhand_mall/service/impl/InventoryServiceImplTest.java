@@ -0,0 +1,83 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.entity.OrderItem;
+import com.backmore.secondhand_mall.repository.StockReservationRepository;
+import com.backmore.secondhand_mall.service.ProductDetailService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 尝试预占：与reserve同一个批量扣减，任一商品库存不足时回滚到保存点，不逐行归还
+ */
+class InventoryServiceImplTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final StockReservationRepository stockReservationRepository = mock(StockReservationRepository.class);
+    private final Connection connection = mock(Connection.class);
+    private final Savepoint savepoint = mock(Savepoint.class);
+
+    private InventoryServiceImpl inventoryService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws SQLException {
+        inventoryService = new InventoryServiceImpl();
+        ReflectionTestUtils.setField(inventoryService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(inventoryService, "stockReservationRepository", stockReservationRepository);
+        ReflectionTestUtils.setField(inventoryService, "productDetailService", mock(ProductDetailService.class));
+        ReflectionTestUtils.setField(inventoryService, "reservationTtlMinutes", 30L);
+
+        when(connection.setSavepoint()).thenReturn(savepoint);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocation -> invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connection));
+    }
+
+    private static List<OrderItem> items(long... productIds) {
+        return Arrays.stream(productIds).mapToObj(productId -> {
+            OrderItem item = new OrderItem();
+            item.setProductId(productId);
+            item.setQuantity(1);
+            return item;
+        }).toList();
+    }
+
+    @Test
+    void outOfStockRollsBackToTheSavepoint() throws SQLException {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+
+        assertFalse(inventoryService.tryReserve(1L, items(10L, 20L)));
+
+        verify(connection).rollback(savepoint);
+        verify(stockReservationRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void inStockKeepsTheBatchAndSavesReservations() throws SQLException {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1});
+
+        assertTrue(inventoryService.tryReserve(1L, items(10L, 20L)));
+
+        verify(connection).releaseSavepoint(savepoint);
+        verify(connection, never()).rollback(any(Savepoint.class));
+        verify(stockReservationRepository).saveAll(anyList());
+    }
+}
@@ -0,0 +1,130 @@
+package com.backmore.secondhand_mall.service.impl;
+
+import com.backmore.secondhand_mall.entity.Order;
+import com.backmore.secondhand_mall.entity.OrderItem;
+import com.backmore.secondhand_mall.exception.FlashSaleConflictException;
+import com.backmore.secondhand_mall.repository.OrderItemRepository;
+import com.backmore.secondhand_mall.repository.OrderRepository;
+import com.backmore.secondhand_mall.service.FlashSaleService;
+import com.backmore.secondhand_mall.service.InventoryService;
+import com.backmore.secondhand_mall.service.OrderTimeoutService;
+import com.backmore.secondhand_mall.service.OutboxService;
+import com.backmore.secondhand_mall.util.OrderNumberGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 秒杀隔离：商品秒杀期间普通下单（含购物车结算）不能扣减它的数据库库存；
+ * 订单修改只写可编辑列，不会用客户端提交的状态覆盖并发的支付或取消
+ */
+class OrderServiceImplTest {
+
+    private static final long FLASH_PRODUCT = 100L;
+    private static final long NORMAL_PRODUCT = 200L;
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+    private final InventoryService inventoryService = mock(InventoryService.class);
+    private final FlashSaleService flashSaleService = mock(FlashSaleService.class);
+
+    private OrderServiceImpl orderService;
+
+    @BeforeEach
+    void setUp() {
+        orderService = new OrderServiceImpl();
+        ReflectionTestUtils.setField(orderService, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(orderService, "orderItemRepository", orderItemRepository);
+        ReflectionTestUtils.setField(orderService, "inventoryService", inventoryService);
+        ReflectionTestUtils.setField(orderService, "orderNumberGenerator", new OrderNumberGenerator(0));
+        ReflectionTestUtils.setField(orderService, "orderTimeoutService", mock(OrderTimeoutService.class));
+        ReflectionTestUtils.setField(orderService, "outboxService", mock(OutboxService.class));
+        ReflectionTestUtils.setField(orderService, "flashSaleService", flashSaleService);
+
+        when(flashSaleService.isEnabled(FLASH_PRODUCT)).thenReturn(true);
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(1L);
+            return order;
+        });
+    }
+
+    private Order orderOf(long... productIds) {
+        List<OrderItem> items = new ArrayList<>();
+        for (long productId : productIds) {
+            OrderItem item = new OrderItem();
+            item.setProductId(productId);
+            item.setQuantity(1);
+            item.setPrice(BigDecimal.ONE);
+            items.add(item);
+        }
+        Order order = new Order();
+        order.setUserId(1L);
+        order.setTotalPrice(BigDecimal.valueOf(productIds.length));
+        order.setItems(items);
+        return order;
+    }
+
+    @Test
+    void createOrderRejectsFlashSaleProductWithoutTouchingStock() {
+        FlashSaleConflictException e = assertThrows(FlashSaleConflictException.class,
+                () -> orderService.createOrder(orderOf(NORMAL_PRODUCT, FLASH_PRODUCT)));
+
+        assertEquals(FLASH_PRODUCT, e.getProductId());
+        verify(orderRepository, never()).save(any());
+        verifyNoInteractions(inventoryService);
+    }
+
+    @Test
+    void createOrderReservesStockForOtherProducts() {
+        Order created = orderService.createOrder(orderOf(NORMAL_PRODUCT));
+
+        assertEquals(1L, created.getId());
+        verify(inventoryService).reserve(anyLong(), anyList());
+    }
+
+    @Test
+    void flashSaleWriterStillCreatesOrdersForTheSaleProduct() {
+        when(inventoryService.tryReserve(anyLong(), anyList())).thenReturn(true);
+
+        Order created = orderService.createOrderIfInStock(orderOf(FLASH_PRODUCT));
+
+        assertEquals(1L, created.getId());
+        verify(inventoryService).tryReserve(anyLong(), anyList());
+    }
+
+    @Test
+    void updateOrderOnlyWritesEditableColumns() {
+        Order stored = orderOf(NORMAL_PRODUCT);
+        stored.setId(1L);
+        stored.setStatus("COMPLETED");
+        when(orderRepository.updateEditableFields(eq(1L), eq("新地址"), isNull(), any())).thenReturn(1);
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(stored));
+
+        Order request = new Order();
+        request.setId(1L);
+        request.setStatus("PENDING");
+        request.setShippingAddress("新地址");
+
+        assertEquals("COMPLETED", orderService.updateOrder(request).getStatus());
+        verify(orderRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,133 @@
+package com.backmore.secondhand_mall.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNumberGeneratorTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    @Test
+    void concurrentIdsAreUnique() throws InterruptedException {
+        generateConcurrently(4, 20_000);
+    }
+
+    /**
+     * 吞吐量基准：每线程生成100万个ID，默认跳过，运行方式：mvn test -Dtest=OrderNumberGeneratorTest -Dbenchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void concurrentThroughput() throws InterruptedException {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        long total = (long) threads * 1_000_000;
+        long elapsedNanos = generateConcurrently(threads, 1_000_000);
+
+        double perSecond = total * 1_000_000_000.0 / elapsedNanos;
+        System.out.printf("OrderNumberGenerator: %d 线程生成 %d 个ID, 耗时 %.1f ms, %.0f 个/秒%n",
+                threads, total, elapsedNanos / 1_000_000.0, perSecond);
+        assertTrue(perSecond > 1_000_000, "吞吐量不足: " + perSecond);
+    }
+
+    /**
+     * 多线程同时生成ID并检查没有重复，返回生成阶段的耗时(纳秒)
+     */
+    private long generateConcurrently(int threads, int perThread) throws InterruptedException {
+        OrderNumberGenerator generator = new OrderNumberGenerator(1);
+        long[][] results = new long[threads][perThread];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long[] out = results[t];
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    out[i] = generator.nextId();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsedNanos = System.nanoTime() - begin;
+
+        long[] all = new long[threads * perThread];
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(results[t], 0, all, t * perThread, perThread);
+        }
+        Arrays.sort(all);
+        for (int i = 1; i < all.length; i++) {
+            assertTrue(all[i] != all[i - 1], "重复ID: " + all[i]);
+        }
+        return elapsedNanos;
+    }
+
+    @Test
+    void clockRollbackDoesNotRepeatIds() {
+        AtomicLong clock = new AtomicLong(OrderNumberGenerator.EPOCH + 10_000);
+        OrderNumberGenerator generator = new OrderNumberGenerator(3, clock::get, ZONE);
+
+        Set<Long> ids = new HashSet<>();
+        long last = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) {
+                clock.addAndGet(-5_000); // 时钟回拨5秒
+            }
+            long id = generator.nextId();
+            assertTrue(id > last, "ID未单调递增");
+            assertTrue(ids.add(id));
+            last = id;
+        }
+    }
+
+    @Test
+    void differentNodesNeverCollide() {
+        AtomicLong clock = new AtomicLong(OrderNumberGenerator.EPOCH + 1);
+        OrderNumberGenerator node1 = new OrderNumberGenerator(1, clock::get, ZONE);
+        OrderNumberGenerator node2 = new OrderNumberGenerator(2, clock::get, ZONE);
+
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            long a = node1.nextId();
+            long b = node2.nextId();
+            assertEquals(1, OrderNumberGenerator.nodeIdOf(a));
+            assertEquals(2, OrderNumberGenerator.nodeIdOf(b));
+            assertTrue(ids.add(a));
+            assertTrue(ids.add(b));
+        }
+    }
+
+    @Test
+    void orderNumberHasDatePrefix() {
+        // 2025-06-01 12:00 北京时间
+        long millis = 1748750400000L;
+        OrderNumberGenerator generator = new OrderNumberGenerator(0, () -> millis, ZONE);
+
+        String orderNumber = generator.nextOrderNumber();
+        assertEquals(27, orderNumber.length());
+        assertTrue(orderNumber.startsWith("20250601"), orderNumber);
+        long id = Long.parseLong(orderNumber.substring(8));
+        assertEquals(millis, OrderNumberGenerator.timestampOf(id));
+    }
+}